@@ -0,0 +1,77 @@
+package ru.netology.storagecloud.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.netology.storagecloud.models.files.responses.FileDescription;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+//цена сжатия ответа /list: время gzip на том уровне, что использует tomcat (6), и на быстром (1);
+//размер ответа до и после сжатия выводится при подготовке каждого набора параметров
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileListCompressionBenchmark {
+
+    private static final String[] PREFIXES = {"IMG_", "report-", "invoice_", "backup-", "Screenshot ", "notes-", "data_"};
+    private static final String[] EXTENSIONS = {"jpg", "pdf", "docx", "csv", "txt", "png", "zip", "log"};
+
+    @Param({"100", "10000", "50000"})
+    public int count;
+
+    @Param({"1", "6"})
+    public int level;
+
+    private ObjectMapper mapper;
+    private List<FileDescription> files;
+    private byte[] json;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = new ObjectMapper();
+//        имена и размеры как у реального пользователя: разные префиксы, даты, номера и расширения
+        final var random = new Random(count);
+        files = IntStream.range(0, count)
+                .mapToObj(i -> new FileDescription(
+                        PREFIXES[random.nextInt(PREFIXES.length)]
+                                + (2020 + random.nextInt(7)) + "-" + (1 + random.nextInt(12)) + "-" + (1 + random.nextInt(28))
+                                + "_" + random.nextInt(100000)
+                                + "." + EXTENSIONS[random.nextInt(EXTENSIONS.length)],
+                        (long) Math.exp(8 + random.nextDouble() * 12)
+                ))
+                .toList();
+        json = mapper.writeValueAsBytes(files);
+        output = new ByteArrayOutputStream(json.length);
+        System.out.println("\n" + count + " files, level " + level + ": json " + json.length
+                + " bytes, gzip " + gzip().length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] json() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(files);
+    }
+
+    @Benchmark
+    public byte[] gzip() throws IOException {
+        output.reset();
+        try (final var gzip = new GZIPOutputStream(output) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(json);
+        }
+        return output.toByteArray();
+    }
+}
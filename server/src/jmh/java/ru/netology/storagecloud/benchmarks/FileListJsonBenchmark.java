@@ -0,0 +1,45 @@
+package ru.netology.storagecloud.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.netology.storagecloud.models.files.responses.FileDescription;
+import ru.netology.storagecloud.models.files.responses.UserFilesListResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileListJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int count;
+
+    private ObjectMapper mapper;
+    private UserFilesListResponse response;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        response = new UserFilesListResponse(
+                IntStream.range(0, count).mapToObj(i -> new FileDescription("testFile" + i + ".txt", i * 1024)).toList(),
+                "SUQ6MTAwOg"
+        );
+    }
+
+    @Benchmark
+    public byte[] writeFileListResponse() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(response);
+    }
+
+//    контроллер отдает в теле только список файлов, курсор уходит в заголовке
+    @Benchmark
+    public byte[] writeFiles() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(response.files());
+    }
+}
@@ -0,0 +1,139 @@
+package ru.netology.storagecloud.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.repositories.files.storage.FileSync;
+import ru.netology.storagecloud.repositories.files.storage.StoredFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FileStorageBenchmark {
+
+    private static final String USERNAME = "benchmarkUser";
+    private static final String FILE_NAME = "benchmark.bin";
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    @Param({"4096", "1048576", "67108864", "1073741824"})
+    public long size;
+
+    private Path directory;
+    private Path source;
+    private FileStorage storage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("storage-benchmark");
+        source = Files.createDirectory(directory.resolve(USERNAME)).resolve(FILE_NAME);
+        final var block = new byte[BLOCK_SIZE];
+        new Random(size).nextBytes(block);
+        try (final var output = Files.newOutputStream(source)) {
+            for (long written = 0; written < size; written += BLOCK_SIZE) {
+                output.write(block, 0, (int) Math.min(BLOCK_SIZE, size - written));
+            }
+        }
+        storage = new FileStorage(new FileSync(FileSync.Mode.FILE));
+        ReflectionTestUtils.setField(storage, "hashAlgorithm", "SHA-256");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public StoredFile saveFile() throws IOException {
+        final var storedFile = storage.saveFile(directory.toString(), new PathMultipartFile(source));
+        storage.discardFile(storedFile);
+        return storedFile;
+    }
+
+//    read-mode stream: файл копируется через буфер приложения
+    @Benchmark
+    public long readFileStream() throws IOException {
+        final var resource = storage.readFile(directory.toString(), USERNAME, FILE_NAME);
+        try (final var input = resource.getInputStream()) {
+            return input.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+//    read-mode sendfile: FileChannel.transferTo, на Linux данные не проходят через кучу JVM
+    @Benchmark
+    public long readFileTransferTo() throws IOException {
+        final var resource = storage.readFile(directory.toString(), USERNAME, FILE_NAME);
+        try (
+                final var input = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+                final var output = FileChannel.open(Path.of("/dev/null"), StandardOpenOption.WRITE)
+        ) {
+            long position = 0;
+            while (position < input.size()) position += input.transferTo(position, input.size() - position, output);
+            return position;
+        }
+    }
+
+//    отдача до потоковой передачи: весь файл читался в byte[]
+    @Benchmark
+    public int readAllBytes() throws IOException {
+        return Files.readAllBytes(source).length;
+    }
+
+    private record PathMultipartFile(Path path) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return path.toFile().length();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath());
+        }
+    }
+}
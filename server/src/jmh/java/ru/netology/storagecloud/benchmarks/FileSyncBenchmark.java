@@ -0,0 +1,71 @@
+package ru.netology.storagecloud.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import ru.netology.storagecloud.repositories.files.storage.FileSync;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//одновременные загрузки: запись небольшого файла, сброс файла и его директории, как при сохранении блоба
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class FileSyncBenchmark {
+
+    private static final int FILE_SIZE = 4096;
+
+    @Param({"FILE", "GROUP"})
+    public FileSync.Mode mode;
+
+//    1 - все пишут в одну директорию, 256 - как блобы, разложенные по поддиректориям
+    @Param({"1", "256"})
+    public int directories;
+
+    private final AtomicLong counter = new AtomicLong();
+    private Path root;
+    private List<Path> targets;
+    private FileSync sync;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("sync-benchmark");
+        targets = new ArrayList<>();
+        for (var i = 0; i < directories; i++) {
+            targets.add(Files.createDirectory(root.resolve("d" + i)));
+        }
+        sync = new FileSync(mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void writeAndSync() throws IOException {
+        final var index = counter.getAndIncrement();
+        final var directory = targets.get((int) (index % directories));
+        try (final var channel = FileChannel.open(
+                directory.resolve("f" + index),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE
+        )) {
+            channel.write(ByteBuffer.allocate(FILE_SIZE));
+            sync.syncFile(channel);
+        }
+        sync.syncDirectory(directory);
+    }
+}
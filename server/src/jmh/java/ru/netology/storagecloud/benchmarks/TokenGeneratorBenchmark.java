@@ -0,0 +1,58 @@
+package ru.netology.storagecloud.benchmarks;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWEDecryptionKeySelector;
+import com.nimbusds.jose.proc.SimpleSecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.*;
+import ru.netology.storagecloud.repositories.tokens.util.TokenGenerator;
+import ru.netology.storagecloud.services.tokens.models.AuthToken;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenGeneratorBenchmark {
+
+    private static final String USERNAME = "benchmarkUser";
+
+    private TokenGenerator tokenGenerator;
+    private String token;
+
+    @Setup
+    public void setup() throws KeyLengthException {
+        tokenGenerator = new TokenGenerator();
+        tokenGenerator.setDaysToExpiration(1);
+        token = tokenGenerator.generateToken(USERNAME).getToken();
+    }
+
+    @Benchmark
+    public AuthToken generateToken() {
+        return tokenGenerator.generateToken(USERNAME);
+    }
+
+    @Benchmark
+    public AuthToken readAuthToken() {
+        return tokenGenerator.readAuthToken(token);
+    }
+
+//    прежняя расшифровка: процессор и селектор ключей создаются на каждый токен
+    @Benchmark
+    public JWTClaimsSet readAuthTokenWithNewProcessor() throws BadJOSEException, ParseException, JOSEException {
+        final var jwtProcessor = new DefaultJWTProcessor<SimpleSecurityContext>();
+        jwtProcessor.setJWEKeySelector(
+                new JWEDecryptionKeySelector<>(JWEAlgorithm.DIR, EncryptionMethod.A192GCM, tokenGenerator.getJweKeySource())
+        );
+        return jwtProcessor.process(token, null);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.netology.storagecloud.services.files;
+
+import org.openjdk.jmh.annotations.*;
+import ru.netology.storagecloud.exceptions.InputDataException;
+
+import java.util.concurrent.TimeUnit;
+
+//проверка имени доступна только внутри пакета сервиса, поэтому бенчмарк лежит в нем же
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileNameBenchmark {
+
+    @Param({"testFile.txt", "test file with spaces.txt", "testFile", "archive.tar.gz", "testFile.t xt"})
+    public String fileName;
+
+    @Benchmark
+    public boolean checkFileName() {
+        try {
+            FileService.checkFileName(fileName);
+            return true;
+        } catch (InputDataException e) {
+            return false;
+        }
+    }
+}
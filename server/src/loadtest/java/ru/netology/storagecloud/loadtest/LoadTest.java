@@ -0,0 +1,39 @@
+package ru.netology.storagecloud.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.netology.storagecloud.StorageCloudApplication;
+
+import java.net.URI;
+import java.nio.file.Files;
+
+//нагрузочный прогон всего сервера: встроенный postgres, временная директория хранилища, случайный порт
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        final var settings = LoadTestSettings.fromSystemProperties();
+        final var storagePath = Files.createTempDirectory("storage-load-test");
+        try (final var postgres = EmbeddedPostgres.start()) {
+//            аргументы командной строки перекрывают application.yml
+            final var context = new SpringApplicationBuilder(StorageCloudApplication.class).run(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.show-sql=false",
+                    "--server.port=0",
+                    "--management.server.port=0",
+                    "--storage.path=" + storagePath + "/"
+            );
+            try {
+                final var port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                new LoadTestClient(URI.create("http://localhost:" + port), settings).run().print(System.out);
+            } finally {
+                context.close();
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(storagePath);
+        }
+    }
+}
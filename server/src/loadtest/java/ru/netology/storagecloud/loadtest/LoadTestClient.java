@@ -0,0 +1,197 @@
+package ru.netology.storagecloud.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.netology.storagecloud.loadtest.LoadTestSettings.Operation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class LoadTestClient {
+
+    private static final String TOKEN_HEADER_NAME = "auth-token";
+    private static final String TOKEN_START_WITH = "Bearer ";
+    private static final String BOUNDARY = "load-test-boundary";
+    private static final int UNIQUE_PREFIX_SIZE = Long.BYTES;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final URI server;
+    private final LoadTestSettings settings;
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final Map<Long, byte[]> contents = new ConcurrentHashMap<>();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+
+    LoadTestClient(URI server, LoadTestSettings settings) {
+        this.server = server;
+        this.settings = settings;
+        for (var operation : Operation.values()) {
+//            перцентили считаются за весь прогон, а не за скользящее окно
+            timers.put(operation, Timer.builder("loadtest." + operation.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .percentilePrecision(2)
+                    .distributionStatisticExpiry(settings.duration().multipliedBy(2))
+                    .distributionStatisticBufferLength(1)
+                    .register(registry));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    LoadTestReport run() throws Exception {
+        final var token = login();
+        final var executor = Executors.newFixedThreadPool(settings.concurrency());
+        final var start = System.nanoTime();
+        final var deadline = start + settings.duration().toNanos();
+        try {
+            final var workers = new ArrayList<Future<?>>();
+            for (var i = 0; i < settings.concurrency(); i++) {
+                final var worker = i;
+                workers.add(executor.submit(() -> work(worker, token, deadline)));
+            }
+            for (var worker : workers) worker.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new LoadTestReport(
+                settings,
+                System.nanoTime() - start,
+                timers,
+                errors,
+                uploadedBytes.get(),
+                downloadedBytes.get()
+        );
+    }
+
+    private Void work(int worker, String token, long deadline) throws InterruptedException {
+        final var random = new Random(worker);
+        final var files = new ArrayList<String>();
+        var counter = 0L;
+        while (System.nanoTime() < deadline) {
+            var operation = settings.nextOperation(random);
+            if (files.isEmpty() && operation != Operation.LIST) operation = Operation.UPLOAD;
+            final var start = System.nanoTime();
+            boolean success;
+            try {
+                success = switch (operation) {
+                    case LIST -> list(token);
+                    case UPLOAD -> {
+                        final var name = "load-" + worker + "-" + counter++ + ".bin";
+                        final var uploaded = upload(token, name, settings.nextFileSize(random), worker, counter);
+                        if (uploaded) files.add(name);
+                        yield uploaded;
+                    }
+                    case DOWNLOAD -> download(token, files.get(random.nextInt(files.size())));
+                    case RENAME -> {
+                        final var index = random.nextInt(files.size());
+                        final var name = "load-" + worker + "-" + counter++ + ".bin";
+                        final var renamed = rename(token, files.get(index), name);
+                        if (renamed) files.set(index, name);
+                        yield renamed;
+                    }
+                    case DELETE -> {
+                        final var deleted = delete(token, files.get(files.size() - 1));
+                        if (deleted) files.remove(files.size() - 1);
+                        yield deleted;
+                    }
+                };
+            } catch (IOException e) {
+                success = false;
+            }
+            timers.get(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!success) errors.get(operation).incrementAndGet();
+        }
+        return null;
+    }
+
+    private String login() throws IOException, InterruptedException {
+        final var body = mapper.writeValueAsString(Map.of("login", settings.username(), "password", settings.password()));
+        final var response = http.send(
+                HttpRequest.newBuilder(server.resolve("/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+        if (response.statusCode() != 200) throw new IllegalStateException("Login failed: " + response.body());
+        return mapper.readTree(response.body()).get(TOKEN_HEADER_NAME).asText();
+    }
+
+    private boolean list(String token) throws IOException, InterruptedException {
+        return send(request(token, "/list?limit=100").GET()) == 200;
+    }
+
+    private boolean upload(String token, String name, long size, int worker, long counter)
+            throws IOException, InterruptedException {
+        final var head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + name + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        final var tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+//        уникальное начало файла, иначе одинаковое содержимое сохранится одним блобом
+        final var prefix = ByteBuffer.allocate(UNIQUE_PREFIX_SIZE).putInt(worker).putInt((int) counter).array();
+        final var content = contents.computeIfAbsent(size, LoadTestClient::content);
+        final var status = send(
+                request(token, "/file?filename=" + name)
+                        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                        .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, prefix, content, tail)))
+        );
+        if (status == 200) uploadedBytes.addAndGet(prefix.length + content.length);
+        return status == 200;
+    }
+
+    private boolean download(String token, String name) throws IOException, InterruptedException {
+        final var response = http.send(
+                request(token, "/file?filename=" + name).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream()
+        );
+        try (final InputStream body = response.body()) {
+            final var buffer = new byte[READ_BUFFER_SIZE];
+            for (int read; (read = body.read(buffer)) >= 0; ) {
+                downloadedBytes.addAndGet(read);
+//                медленный клиент: следующая часть читается после паузы
+                if (!settings.readDelay().isZero()) Thread.sleep(settings.readDelay().toMillis());
+            }
+        }
+        return response.statusCode() == 200;
+    }
+
+    private boolean rename(String token, String name, String newName) throws IOException, InterruptedException {
+        final var body = mapper.writeValueAsString(Map.of("filename", newName));
+        return send(
+                request(token, "/file?filename=" + name)
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(body))
+        ) == 200;
+    }
+
+    private boolean delete(String token, String name) throws IOException, InterruptedException {
+        return send(request(token, "/file?filename=" + name).DELETE()) == 200;
+    }
+
+    private HttpRequest.Builder request(String token, String path) {
+        return HttpRequest.newBuilder(server.resolve(path)).header(TOKEN_HEADER_NAME, TOKEN_START_WITH + token);
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static byte[] content(long size) {
+        final var content = new byte[Math.toIntExact(Math.max(0, size - UNIQUE_PREFIX_SIZE))];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.netology.storagecloud.loadtest;
+
+import io.micrometer.core.instrument.Timer;
+import ru.netology.storagecloud.loadtest.LoadTestSettings.Operation;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+record LoadTestReport(
+        LoadTestSettings settings,
+        long elapsedNanos,
+        Map<Operation, Timer> timers,
+        Map<Operation, AtomicLong> errors,
+        long uploadedBytes,
+        long downloadedBytes
+) {
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    void print(PrintStream out) {
+        final var seconds = elapsedNanos / 1e9;
+        out.printf(
+                "concurrency=%d duration=%.1fs read-delay=%s%n",
+                settings.concurrency(),
+                seconds,
+                settings.readDelay()
+        );
+        out.printf("%-10s %10s %8s %12s %10s %10s %10s%n", "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms");
+        for (var entry : timers.entrySet()) {
+            final var timer = entry.getValue();
+            if (timer.count() == 0) continue;
+            final var percentiles = timer.takeSnapshot().percentileValues();
+            out.printf(
+                    "%-10s %10d %8d %12.1f %10.2f %10.2f %10.2f%n",
+                    entry.getKey().name().toLowerCase(),
+                    timer.count(),
+                    errors.get(entry.getKey()).get(),
+                    timer.count() / seconds,
+                    percentiles[0].value(TimeUnit.MILLISECONDS),
+                    percentiles[1].value(TimeUnit.MILLISECONDS),
+                    percentiles[2].value(TimeUnit.MILLISECONDS)
+            );
+        }
+        out.printf(
+                "uploaded %.1f MB/s, downloaded %.1f MB/s%n",
+                uploadedBytes / MEGABYTE / seconds,
+                downloadedBytes / MEGABYTE / seconds
+        );
+    }
+}
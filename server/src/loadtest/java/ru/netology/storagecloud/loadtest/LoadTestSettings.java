@@ -0,0 +1,80 @@
+package ru.netology.storagecloud.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+record LoadTestSettings(
+        String username,
+        String password,
+        int concurrency,
+        Duration duration,
+        Duration readDelay,
+        List<Weighted<Operation>> operations,
+        List<Weighted<Long>> fileSizes
+) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                System.getProperty("loadtest.username", "owner"),
+                System.getProperty("loadtest.password", "owner-pass"),
+                Integer.parseInt(System.getProperty("loadtest.concurrency", "32")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.read-delay", "0ms")),
+                weighted(
+                        System.getProperty("loadtest.mix", "list:40,download:30,upload:15,rename:10,delete:5"),
+                        name -> Operation.valueOf(name.toUpperCase())
+                ),
+                weighted(
+                        System.getProperty("loadtest.file-sizes", "4KB:50,1MB:40,64MB:10"),
+                        size -> DataSize.parse(size).toBytes()
+                )
+        );
+    }
+
+    Operation nextOperation(Random random) {
+        return next(operations, random);
+    }
+
+    long nextFileSize(Random random) {
+        return next(fileSizes, random);
+    }
+
+    private static <T> T next(List<Weighted<T>> values, Random random) {
+        final var total = values.stream().mapToInt(Weighted::weight).sum();
+        var point = random.nextInt(total);
+        for (var value : values) {
+            point -= value.weight();
+            if (point < 0) return value.value();
+        }
+        throw new IllegalStateException();
+    }
+
+//    формат: значение:вес,значение:вес
+    private static <T> List<Weighted<T>> weighted(String property, Function<String, T> parser) {
+        final var result = new ArrayList<Weighted<T>>();
+        for (var item : property.split(",")) {
+            final var parts = item.trim().split(":");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected value:weight, got " + item);
+            result.add(new Weighted<>(parser.apply(parts[0].trim()), Integer.parseInt(parts[1].trim())));
+        }
+        if (result.stream().mapToInt(Weighted::weight).sum() <= 0) throw new IllegalArgumentException(property);
+        return result;
+    }
+
+    enum Operation {
+        LIST,
+        UPLOAD,
+        DOWNLOAD,
+        RENAME,
+        DELETE
+    }
+
+    record Weighted<T>(T value, int weight) {
+    }
+}
@@ -0,0 +1,13 @@
+package ru.netology.storagecloud.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import ru.netology.storagecloud.metrics.PhaseRecording;
+
+@Configuration
+public class MetricsConfiguration {
+
+    public MetricsConfiguration(@Value("${storage.phases.enabled:false}") boolean phasesEnabled) {
+        PhaseRecording.setEnabled(phasesEnabled);
+    }
+}
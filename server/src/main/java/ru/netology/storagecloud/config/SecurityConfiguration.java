@@ -21,13 +21,17 @@ import org.springframework.security.provisioning.JdbcUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import ru.netology.storagecloud.config.entities.UserProperties;
+import ru.netology.storagecloud.controllers.FileController;
 import ru.netology.storagecloud.models.errors.ErrorMessage;
 import ru.netology.storagecloud.models.errors.ExceptionResponse;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
 import ru.netology.storagecloud.repositories.tokens.util.TokenGenerator;
-import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
 import ru.netology.storagecloud.security.AuthTokenProvider;
 import ru.netology.storagecloud.security.UsernameLoginFilter;
 
@@ -42,6 +46,13 @@ import java.util.List;
 @Data
 public class SecurityConfiguration implements WebMvcConfigurer {
 
+    private static final RequestMatcher PUBLIC_REQUESTS = new OrRequestMatcher(
+            new AntPathRequestMatcher("/login", HttpMethod.POST.name()),
+            new AntPathRequestMatcher("/logout", HttpMethod.POST.name()),
+            new AntPathRequestMatcher("/actuator/health", HttpMethod.GET.name()),
+            new AntPathRequestMatcher("/actuator/prometheus", HttpMethod.GET.name())
+    );
+
     private final List<UserProperties> users = new ArrayList<>();
     private final List<String> origins = new ArrayList<>();
 
@@ -53,7 +64,7 @@ public class SecurityConfiguration implements WebMvcConfigurer {
     @Bean
     public SecurityFilterChain securityFilterChain(
             HttpSecurity http,
-            TokenJpaRepository tokenJpaRepository,
+            TokenCache tokenCache,
             TokenGenerator tokenGenerator
     ) throws Exception {
 
@@ -64,10 +75,9 @@ public class SecurityConfiguration implements WebMvcConfigurer {
                 .and()
                 .exceptionHandling().authenticationEntryPoint((request, response, authException) -> this.sendError(response))
                 .and()
-                .addFilterBefore(tokenFilter(tokenGenerator, tokenJpaRepository), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(tokenFilter(tokenGenerator, tokenCache), UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests()
-                .requestMatchers(HttpMethod.POST, "/login").permitAll()
-                .requestMatchers(HttpMethod.POST, "/logout").permitAll()
+                .requestMatchers(PUBLIC_REQUESTS).permitAll()
                 .anyRequest().authenticated()
                 .and()
                 .logout().disable();
@@ -103,11 +113,12 @@ public class SecurityConfiguration implements WebMvcConfigurer {
         registry.addMapping("/**")
                 .allowedOrigins(origins.toArray(String[]::new))
                 .allowCredentials(true)
-                .allowedMethods("*");
+                .allowedMethods("*")
+                .exposedHeaders(FileController.CURSOR_HEADER);
     }
 
-    private UsernameLoginFilter tokenFilter(TokenGenerator tokenGenerator, TokenJpaRepository tokenJpaRepository) {
-        final var provider = new AuthTokenProvider(tokenJpaRepository, tokenGenerator);
+    private UsernameLoginFilter tokenFilter(TokenGenerator tokenGenerator, TokenCache tokenCache) {
+        final var provider = new AuthTokenProvider(tokenCache, tokenGenerator);
 
         final var manager = new ProviderManager(provider);
 
@@ -116,6 +127,7 @@ public class SecurityConfiguration implements WebMvcConfigurer {
         authFilter.setFilterProcessesUrl("/**");
         authFilter.setAuthenticationManager(manager);
         authFilter.setPostOnly(false);
+        authFilter.setPublicRequests(PUBLIC_REQUESTS);
         authFilter.setAuthenticationSuccessHandler(((request, response, authentication) -> {
         }));
         return authFilter;
@@ -0,0 +1,120 @@
+package ru.netology.storagecloud.controllers;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import ru.netology.storagecloud.metrics.StorageMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class AsyncFileTransfer implements WriteListener, AsyncListener, CompletionHandler<Integer, Void> {
+
+    private final AsyncContext context;
+    private final ServletOutputStream output;
+    private final AsynchronousFileChannel channel;
+    private final ByteBuffer buffer;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private long position;
+
+    private AsyncFileTransfer(AsyncContext context, ServletOutputStream output, AsynchronousFileChannel channel, int bufferSize) {
+        this.context = context;
+        this.output = output;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    static void start(AsyncContext context, Path path, int bufferSize) throws IOException {
+        final var channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final var output = context.getResponse().getOutputStream();
+            final var transfer = new AsyncFileTransfer(context, output, channel, bufferSize);
+//            при таймауте или ошибке запроса контейнер сообщает об этом только слушателю контекста
+            context.addListener(transfer);
+            output.setWriteListener(transfer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+//        вызывается контейнером, когда клиент принял предыдущую часть, поэтому чтение в этот момент не выполняется
+        channel.read(buffer, position, null, this);
+    }
+
+    @Override
+    public void completed(Integer count, Void attachment) {
+        if (finished.get()) return;
+        if (count < 0) {
+            finish();
+            return;
+        }
+        try {
+            position += count;
+            output.write(buffer.array(), 0, buffer.position());
+            StorageMetrics.DOWNLOADED_BYTES.increment(buffer.position());
+            buffer.clear();
+//            медленный клиент не успевает принять данные: следующая часть читается только после onWritePossible
+            if (output.isReady()) channel.read(buffer, position, null, this);
+        } catch (IOException | RuntimeException e) {
+            finish();
+        }
+    }
+
+    @Override
+    public void failed(Throwable exc, Void attachment) {
+        finish();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        finish();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        finish();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        finish();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+//        контекст уже завершен, повторный complete бросил бы IllegalStateException
+        finish(false);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void finish() {
+        finish(true);
+    }
+
+    private void finish(boolean complete) {
+        if (!finished.compareAndSet(false, true)) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        if (!complete) return;
+        try {
+            context.complete();
+        } catch (IllegalStateException ignored) {
+//            контейнер завершил запрос одновременно с отдачей
+        }
+    }
+}
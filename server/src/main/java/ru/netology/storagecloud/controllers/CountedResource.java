@@ -0,0 +1,79 @@
+package ru.netology.storagecloud.controllers;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import ru.netology.storagecloud.metrics.StorageMetrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+//учитывает в DOWNLOADED_BYTES байты, которые Spring прочитал для отправки клиенту; пропуск до начала Range не учитывается
+final class CountedResource extends AbstractResource {
+
+    private final Resource resource;
+
+    CountedResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    static InputStream count(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                final var value = super.read();
+                if (value >= 0) StorageMetrics.DOWNLOADED_BYTES.increment();
+                return value;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                final var count = super.read(bytes, offset, length);
+                if (count > 0) StorageMetrics.DOWNLOADED_BYTES.increment(count);
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return count(this.resource.getInputStream());
+    }
+
+    @Override
+    public boolean exists() {
+        return this.resource.exists();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return this.resource.contentLength();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return this.resource.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return this.resource.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return "counted " + this.resource.getDescription();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof CountedResource other)) return false;
+        return this.resource.equals(other.resource);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.resource.hashCode();
+    }
+}
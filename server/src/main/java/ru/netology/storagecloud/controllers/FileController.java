@@ -1,15 +1,27 @@
 package ru.netology.storagecloud.controllers;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import ru.netology.storagecloud.exceptions.InputDataException;
 import ru.netology.storagecloud.exceptions.InternalServerException;
+import ru.netology.storagecloud.metrics.StorageMetrics;
+import ru.netology.storagecloud.models.errors.ErrorMessage;
 import ru.netology.storagecloud.models.files.params.*;
 import ru.netology.storagecloud.models.files.responses.FileDescription;
 import ru.netology.storagecloud.models.files.responses.UserFileResponse;
 import ru.netology.storagecloud.services.files.FileService;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -17,16 +29,75 @@ import java.util.List;
 @RequestMapping
 public class FileController {
 
+    public static final String CURSOR_HEADER = "cursor";
+
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    private static final int ASYNC_BUFFER_SIZE = 64 * 1024;
+
     private final FileService service;
 
+    @Value("${storage.read-mode:stream}")
+    private ReadMode readMode;
+
+    @Value("${storage.async-timeout:1h}")
+    private Duration asyncTimeout;
+
     @GetMapping("/list")
-    public List<FileDescription> getFileList(@RequestParam int limit) throws InternalServerException, InputDataException {
-        return service.getFileList(new FilesListParams(limit)).files();
+    public ResponseEntity<List<FileDescription>> getFileList(
+            @RequestParam int limit,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor
+    ) throws InternalServerException, InputDataException {
+        final var response = service.getFileList(new FilesListParams(limit, sort, cursor));
+        final var headers = new HttpHeaders();
+        if (response.cursor() != null) headers.set(CURSOR_HEADER, response.cursor());
+        return new ResponseEntity<>(response.files(), headers, HttpStatus.OK);
     }
 
     @GetMapping("/file")
-    public UserFileResponse getFile(@RequestParam String filename) throws InputDataException, InternalServerException {
-        return service.getFile(new GetFileParams(filename));
+    public ResponseEntity<Resource> getFile(
+            @RequestParam String filename,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws InputDataException, InternalServerException {
+        final var userFile = service.getFile(new GetFileParams(filename));
+//        сжатый файл уходит без распаковки, если клиент принимает кодирование; Range тогда относится к сжатым байтам
+        final var encoded = userFile.encodedFile() != null && acceptsEncoding(request, userFile.contentEncoding());
+        final var file = encoded ? userFile.encodedFile() : userFile.file();
+        try {
+            final var headers = fileHeaders(filename, eTag(userFile, encoded), file);
+            if (userFile.encodedFile() != null) {
+                headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+                if (encoded) headers.set(HttpHeaders.CONTENT_ENCODING, userFile.contentEncoding());
+            }
+            final var range = request.getHeader(HttpHeaders.RANGE);
+            if (range != null && !ifRangeMatches(request, headers.getETag(), file)) {
+//                Spring не применяет Range к InputStreamResource, поэтому файл уйдет целиком
+                headers.setContentLength(file.contentLength());
+                final var input = CountedResource.count(file.getInputStream());
+                return new ResponseEntity<>(new InputStreamResource(input), headers, HttpStatus.OK);
+            }
+            if (readMode == ReadMode.ASYNC && range == null && file.isFile() && request.isAsyncSupported()) {
+                sendAsync(request, response, headers, file);
+                return null;
+            }
+            if (readMode == ReadMode.SENDFILE && sendfileSupported(request, file)) {
+                final var region = sendfileRegion(range, file);
+                if (region != null) {
+//                    sendfile выполняет контейнер после выхода из метода, прерванная передача закрывает соединение,
+//                    поэтому регион учитывается целиком при передаче контейнеру
+                    StorageMetrics.DOWNLOADED_BYTES.increment(region.getCount());
+                    return sendfile(request, headers, region, range != null);
+                }
+            }
+//            Range для Resource обрабатывает Spring: 206, multipart/byteranges, 416
+            return new ResponseEntity<>(new CountedResource(file), headers, HttpStatus.OK);
+        } catch (IOException e) {
+            throw new InternalServerException(ErrorMessage.ERROR_GETTING_FILE);
+        }
     }
 
     @DeleteMapping("/file")
@@ -43,4 +114,118 @@ public class FileController {
     public void addFile(@RequestParam String filename, @RequestPart MultipartFile file) throws InputDataException {
         service.addFile(new AddFileParams(filename, file));
     }
+
+    private HttpHeaders fileHeaders(String filename, String hash, Resource file) throws IOException {
+        final var headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (hash != null) headers.setETag("\"" + hash + "\"");
+        if (file.isFile()) headers.setLastModified(file.lastModified());
+        return headers;
+    }
+
+//    у сжатого и распакованного представления разное содержимое, поэтому и ETag должен различаться
+    private String eTag(UserFileResponse userFile, boolean encoded) {
+        if (userFile.hash() == null || !encoded) return userFile.hash();
+        return userFile.hash() + "-" + userFile.contentEncoding();
+    }
+
+    private boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        final var values = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (values != null && values.hasMoreElements()) {
+            for (var value : values.nextElement().split(",")) {
+                final var parts = value.split(";");
+                final var coding = parts[0].trim();
+                if ((coding.equalsIgnoreCase(encoding) || coding.equals("*")) && !zeroQuality(parts)) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean zeroQuality(String[] parts) {
+        for (var i = 1; i < parts.length; i++) {
+            final var parameter = parts[i].trim();
+            if (!parameter.startsWith("q=")) continue;
+            try {
+                return Double.parseDouble(parameter.substring(2)) == 0;
+            } catch (NumberFormatException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String eTag, Resource file) throws IOException {
+        final var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+//        If-Range допускает только сильное сравнение ETag
+        if (ifRange.startsWith("\"")) return ifRange.equals(eTag);
+        if (ifRange.startsWith("W/") || !file.isFile()) return false;
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean sendfileSupported(HttpServletRequest request, Resource file) {
+        return Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE)) && file.isFile();
+    }
+
+    private ResourceRegion sendfileRegion(String range, Resource file) throws IOException {
+        if (range == null) return new ResourceRegion(file, 0, file.contentLength());
+        try {
+            final var ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0).toResourceRegion(file) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<Resource> sendfile(
+            HttpServletRequest request,
+            HttpHeaders headers,
+            ResourceRegion region,
+            boolean partial
+    ) throws IOException {
+        final var start = region.getPosition();
+        final var end = start + region.getCount();
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, region.getResource().getFile().getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+        headers.setContentLength(region.getCount());
+        if (!partial) return new ResponseEntity<>(headers, HttpStatus.OK);
+        headers.set(
+                HttpHeaders.CONTENT_RANGE,
+                "bytes " + start + "-" + (end - 1) + "/" + region.getResource().contentLength()
+        );
+        return new ResponseEntity<>(headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    private void sendAsync(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            HttpHeaders headers,
+            Resource file
+    ) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setContentLengthLong(file.contentLength());
+//        поток запроса освобождается, файл читается и отдается по мере готовности клиента принять данные
+        final var context = request.startAsync(request, response);
+        context.setTimeout(asyncTimeout.toMillis());
+        try {
+            AsyncFileTransfer.start(context, file.getFile().toPath(), ASYNC_BUFFER_SIZE);
+        } catch (IOException e) {
+            context.complete();
+            throw e;
+        }
+    }
+
+    public enum ReadMode {
+        STREAM,
+        SENDFILE,
+        ASYNC
+    }
 }
@@ -0,0 +1,38 @@
+package ru.netology.storagecloud.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.netology.storagecloud.exceptions.InputDataException;
+import ru.netology.storagecloud.exceptions.InternalServerException;
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.models.files.responses.UploadSessionResponse;
+import ru.netology.storagecloud.services.files.UploadService;
+
+import java.io.InputStream;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/upload")
+public class UploadController {
+
+    private final UploadService service;
+
+    @PostMapping
+    public UploadSessionResponse openUpload(@RequestParam String filename, @RequestParam long size)
+            throws InputDataException, InternalServerException {
+        return service.openUpload(new OpenUploadParams(filename, size));
+    }
+
+    @PutMapping("/{uploadId}/{index}")
+    public void uploadChunk(@PathVariable String uploadId, @PathVariable int index, InputStream content)
+            throws InputDataException, InternalServerException {
+        service.uploadChunk(new UploadChunkParams(uploadId, index, content));
+    }
+
+    @PostMapping("/{uploadId}")
+    public void commitUpload(@PathVariable String uploadId) throws InputDataException, InternalServerException {
+        service.commitUpload(new CommitUploadParams(uploadId));
+    }
+}
@@ -0,0 +1,18 @@
+package ru.netology.storagecloud.metrics;
+
+import jdk.jfr.*;
+
+@Name("ru.netology.storagecloud.StoragePhase")
+@Label("Storage Phase")
+@Category("StorageCloud")
+@Description("Time spent by a request in one storage phase")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    private String phase;
+
+    PhaseEvent(StoragePhase phase) {
+        this.phase = phase.name();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.netology.storagecloud.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+public final class PhaseRecording implements AutoCloseable {
+
+//    при выключенной записи возвращается один общий объект: ни выделения памяти, ни замеров времени
+    private static final PhaseRecording DISABLED = new PhaseRecording(null, 0, null);
+
+    private static volatile boolean enabled;
+
+    private final StoragePhase phase;
+    private final long start;
+    private final PhaseEvent event;
+
+    private PhaseRecording(StoragePhase phase, long start, PhaseEvent event) {
+        this.phase = phase;
+        this.start = start;
+        this.event = event;
+    }
+
+    public static PhaseRecording start(StoragePhase phase) {
+        if (!enabled) return DISABLED;
+        final var event = new PhaseEvent(phase);
+        event.begin();
+        return new PhaseRecording(phase, System.nanoTime(), event);
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PhaseRecording.enabled = enabled;
+    }
+
+    @Override
+    public void close() {
+        if (phase == null) return;
+        phase.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        event.commit();
+    }
+}
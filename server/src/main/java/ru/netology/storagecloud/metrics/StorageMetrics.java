@@ -0,0 +1,40 @@
+package ru.netology.storagecloud.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+public final class StorageMetrics {
+
+//    счетчики регистрируются в глобальном реестре, к которому Spring Boot подключает реестр prometheus
+    public static final Counter UPLOADED_BYTES = Counter.builder("storage.bytes.uploaded")
+            .description("File content received from clients")
+            .baseUnit(BaseUnits.BYTES)
+            .register(Metrics.globalRegistry);
+
+    public static final Counter DOWNLOADED_BYTES = Counter.builder("storage.bytes.downloaded")
+            .description("File content sent to clients")
+            .baseUnit(BaseUnits.BYTES)
+            .register(Metrics.globalRegistry);
+
+//    в режиме group запросы на сброс одной директории объединяются: счетчик меньше числа запросов DISK_SYNC
+    public static final Counter DIRECTORY_SYNCS = Counter.builder("storage.sync.directories")
+            .description("Directory fsync calls")
+            .register(Metrics.globalRegistry);
+
+    public static final Counter FILE_CACHE_HITS = cacheCounter("file", "hit");
+    public static final Counter FILE_CACHE_MISSES = cacheCounter("file", "miss");
+    public static final Counter LIST_CACHE_HITS = cacheCounter("list", "hit");
+    public static final Counter LIST_CACHE_MISSES = cacheCounter("list", "miss");
+
+    private StorageMetrics() {
+    }
+
+    private static Counter cacheCounter(String cache, String result) {
+        return Counter.builder("storage.cache.requests")
+                .description("File metadata cache lookups")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(Metrics.globalRegistry);
+    }
+}
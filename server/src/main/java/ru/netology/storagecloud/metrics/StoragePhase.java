@@ -0,0 +1,28 @@
+package ru.netology.storagecloud.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+public enum StoragePhase {
+    METADATA_LOOKUP,
+    DIRECTORY_CHECK,
+//    проверка, что файл есть и доступен для чтения; само содержимое читается позже, при отправке ответа
+    FILE_CHECK,
+//    чтение содержимого целиком, например для подсчета хэша
+    DISK_READ,
+    DISK_WRITE,
+    DISK_MOVE,
+    DISK_DELETE,
+    DISK_SYNC,
+    DB_SAVE;
+
+    private final Timer timer = Timer.builder("storage.phase")
+            .description("Time spent by a request in one storage phase")
+            .tag("phase", name().toLowerCase())
+            .publishPercentileHistogram()
+            .register(Metrics.globalRegistry);
+
+    Timer timer() {
+        return timer;
+    }
+}
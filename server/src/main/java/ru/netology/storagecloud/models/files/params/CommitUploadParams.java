@@ -0,0 +1,4 @@
+package ru.netology.storagecloud.models.files.params;
+
+public record CommitUploadParams(String uploadId) {
+}
@@ -1,4 +1,4 @@
 package ru.netology.storagecloud.models.files.params;
 
-public record FilesListParams(int count) {
+public record FilesListParams(int count, String sort, String cursor) {
 }
@@ -0,0 +1,4 @@
+package ru.netology.storagecloud.models.files.params;
+
+public record OpenUploadParams(String fileName, long size) {
+}
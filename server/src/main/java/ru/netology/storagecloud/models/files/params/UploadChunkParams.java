@@ -0,0 +1,6 @@
+package ru.netology.storagecloud.models.files.params;
+
+import java.io.InputStream;
+
+public record UploadChunkParams(String uploadId, int index, InputStream content) {
+}
@@ -8,6 +8,6 @@ public record FileDescription(
         String fileName,
 
         @JsonProperty("size")
-        int size
+        long size
 ) {
 }
@@ -0,0 +1,16 @@
+package ru.netology.storagecloud.models.files.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record UploadSessionResponse(
+
+        @JsonProperty("upload-id")
+        String uploadId,
+
+        @JsonProperty("chunk-size")
+        long chunkSize,
+
+        @JsonProperty("chunks")
+        int chunks
+) {
+}
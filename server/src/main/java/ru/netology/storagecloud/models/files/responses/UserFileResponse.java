@@ -1,4 +1,11 @@
 package ru.netology.storagecloud.models.files.responses;
 
-public record UserFileResponse(String hash, byte[] file) {
+import org.springframework.core.io.Resource;
+
+//encodedFile - файл в виде, сохраненном на диске, если он сжат кодированием contentEncoding
+public record UserFileResponse(String hash, Resource file, Resource encodedFile, String contentEncoding) {
+
+    public UserFileResponse(String hash, Resource file) {
+        this(hash, file, null, null);
+    }
 }
@@ -2,5 +2,5 @@ package ru.netology.storagecloud.models.files.responses;
 
 import java.util.List;
 
-public record UserFilesListResponse(List<FileDescription> files) {
+public record UserFilesListResponse(List<FileDescription> files, String cursor) {
 }
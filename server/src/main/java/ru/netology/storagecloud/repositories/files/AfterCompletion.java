@@ -0,0 +1,52 @@
+package ru.netology.storagecloud.repositories.files;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+//изменения на диске, которые нельзя откатить вместе с транзакцией, выполняются после ее завершения
+final class AfterCompletion {
+
+    private AfterCompletion() {
+    }
+
+//    без транзакции действие выполняется сразу; ошибка после коммита доходит до вызывающего
+    static void onCommit(DiskAction action) throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+//    без транзакции откатывать нечего; ошибка отката только записывается в лог
+    static void onRollback(DiskAction action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) return;
+                try {
+                    action.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    interface DiskAction {
+        void run() throws IOException;
+    }
+}
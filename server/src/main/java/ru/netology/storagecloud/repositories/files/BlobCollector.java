@@ -0,0 +1,76 @@
+package ru.netology.storagecloud.repositories.files;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
+import ru.netology.storagecloud.repositories.files.storage.BlobFile;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+@Data
+@Component
+public class BlobCollector {
+
+    private final BlobJpaRepository blobs;
+    private final FileStorage storage;
+
+    @Value("${storage.path}")
+    private String path;
+    @Value("${storage.blobs.collect-batch:1000}")
+    private int batch;
+    @Value("${storage.blobs.sweep-grace:1h}")
+    private Duration sweepGrace;
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${storage.blobs.collect-interval:60000}")
+    public void collect() {
+//        строки блобов заблокированы до коммита, поэтому параллельная загрузка того же содержимого
+//        дождется удаления файла и создаст блоб заново
+        for (var blob : this.blobs.lockUnreferenced(this.batch)) {
+            try {
+                storage.deleteBlob(this.path, blob.getHash(), blob.getShardDepth());
+                this.blobs.delete(blob);
+            } catch (IOException e) {
+//                повторная попытка при следующем запуске сборки
+            }
+        }
+    }
+
+//    файл переносится в блобы до коммита: если коммит не удался, файл остается без строки и collect его не видит;
+//    файлы моложе sweep-grace могут принадлежать еще не завершенной транзакции
+    @Scheduled(fixedDelayString = "${storage.blobs.sweep-interval:3600000}")
+    public void sweep() {
+        final var changedBefore = Instant.now().minus(this.sweepGrace);
+        try (final var files = storage.findBlobs(this.path, changedBefore)) {
+            final var batch = new ArrayList<BlobFile>(this.batch);
+            for (var file : (Iterable<BlobFile>) files::iterator) {
+                batch.add(file);
+                if (batch.size() < this.batch) continue;
+                adoptOrphans(batch);
+                batch.clear();
+            }
+            adoptOrphans(batch);
+        } catch (IOException | UncheckedIOException e) {
+//            повторная попытка при следующем запуске
+        }
+    }
+
+    private void adoptOrphans(List<BlobFile> files) {
+        if (files.isEmpty()) return;
+        final var known = new HashSet<String>();
+        this.blobs.findAllById(files.stream().map(BlobFile::hash).toList()).forEach(blob -> known.add(blob.getHash()));
+        for (var file : files) {
+            if (!known.contains(file.hash())) this.blobs.adopt(file.hash(), file.shardDepth(), file.size());
+        }
+    }
+}
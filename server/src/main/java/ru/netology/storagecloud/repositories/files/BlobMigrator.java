@@ -0,0 +1,147 @@
+package ru.netology.storagecloud.repositories.files;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.entities.OldLocationEntity;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.OldLocationJpaRepository;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+
+@Data
+@Component
+@ConditionalOnProperty(value = "storage.blobs.migrate", havingValue = "true")
+public class BlobMigrator {
+
+    private final FileJpaRepository database;
+    private final BlobJpaRepository blobs;
+    private final FileStorage storage;
+    private final TransactionTemplate transactions;
+    private final FileCache cache;
+    private final OldLocationJpaRepository oldLocations;
+
+    @Value("${storage.path}")
+    private String path;
+    @Value("${storage.blobs.shard-depth:2}")
+    private int shardDepth;
+    @Value("${storage.blobs.migrate-batch:100}")
+    private int batch;
+    @Value("${storage.blobs.migrate-grace:1m}")
+    private Duration grace;
+
+    @Scheduled(fixedDelayString = "${storage.blobs.migrate-interval:60000}")
+    public void migrate() {
+//        старые пути удаляются не раньше чем через grace, чтобы запросы, прочитавшие строку до переноса, успели открыть файл
+        removeOldLocations();
+//        старый путь сохраняется в той же транзакции, что и перенос: при откате его нет, после перезапуска он не теряется
+        moved(transactions.execute(status -> migrateBlobs()));
+        moved(transactions.execute(status -> migrateFiles()));
+    }
+
+    private void moved(Integer count) {
+//        закешированные строки указывают на старые пути, которые скоро будут удалены
+        if (count != null && count > 0) this.cache.invalidateAll();
+    }
+
+    private int migrateBlobs() {
+        var moved = 0;
+        for (var blob : this.blobs.lockOtherShardDepth(this.shardDepth, this.batch)) {
+            try {
+                storage.linkBlob(this.path, blob.getHash(), blob.getShardDepth(), this.shardDepth);
+            } catch (IOException e) {
+//                повторная попытка при следующем запуске
+                continue;
+            }
+            this.oldLocations.save(OldLocationEntity.builder()
+                    .hash(blob.getHash())
+                    .shardDepth(blob.getShardDepth())
+                    .moved(System.currentTimeMillis())
+                    .build());
+            moved++;
+            blob.setShardDepth(this.shardDepth);
+            this.database.updateShardDepth(blob.getHash(), this.shardDepth);
+        }
+        return moved;
+    }
+
+//    файлы, загруженные до хранилища блобов, лежат в директории пользователя и переносятся в блобы
+    private int migrateFiles() {
+        var moved = 0;
+        for (var file : this.database.lockWithoutBlob(this.batch)) {
+            final String hash;
+            try {
+                hash = storage.hashFile(file.getPathDirectory(), file.getUsername(), file.getFileName()).hash();
+            } catch (IOException e) {
+                continue;
+            }
+            final var blob = this.blobs.acquire(hash, file.getSize(), this.shardDepth, FileCodec.NONE.name(), file.getSize());
+            try {
+//                файл старого формата не сжат; если блоб уже хранится сжатым, ссылка не создается и строка указывает на него
+                if (blob.getCodec() == FileCodec.NONE) {
+                    storage.linkFileToBlob(
+                            file.getPathDirectory(),
+                            file.getUsername(),
+                            file.getFileName(),
+                            this.path,
+                            hash,
+                            blob.getShardDepth()
+                    );
+                }
+            } catch (IOException e) {
+                this.blobs.release(hash);
+                continue;
+            }
+            this.oldLocations.save(OldLocationEntity.builder()
+                    .pathDirectory(file.getPathDirectory())
+                    .username(file.getUsername())
+                    .fileName(file.getFileName())
+                    .moved(System.currentTimeMillis())
+                    .build());
+            moved++;
+            file.setPathDirectory(this.path);
+            file.setHash(hash);
+            file.setBlob(hash);
+            file.setShardDepth(blob.getShardDepth());
+            file.setCodec(blob.getCodec());
+            file.setStoredSize(blob.getStoredSize());
+        }
+        return moved;
+    }
+
+    private void removeOldLocations() {
+        final var movedBefore = System.currentTimeMillis() - this.grace.toMillis();
+        for (var location : this.oldLocations.findMovedBefore(movedBefore, this.batch)) {
+            try {
+                if (location.getHash() == null) {
+                    storage.deleteFile(location.getPathDirectory(), location.getUsername(), location.getFileName());
+                } else if (isCurrent(location)) {
+//                    глубина вернулась к прежней до удаления: путь снова используется блобом
+                } else {
+                    storage.deleteBlob(this.path, location.getHash(), location.getShardDepth());
+                }
+            } catch (NoSuchFileException e) {
+//                файл уже удален, например другим экземпляром
+            } catch (IOException e) {
+//                повторная попытка при следующем запуске
+                continue;
+            }
+            this.oldLocations.delete(location);
+        }
+    }
+
+    private boolean isCurrent(OldLocationEntity location) {
+        return this.blobs.findById(location.getHash())
+                .map(blob -> blob.getShardDepth() == location.getShardDepth())
+                .orElse(false);
+    }
+}
@@ -4,82 +4,164 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.netology.storagecloud.metrics.PhaseRecording;
+import ru.netology.storagecloud.metrics.StoragePhase;
 import ru.netology.storagecloud.models.files.params.*;
 import ru.netology.storagecloud.models.files.responses.FileDescription;
 import ru.netology.storagecloud.models.files.responses.UserFileResponse;
 import ru.netology.storagecloud.models.files.responses.UserFilesListResponse;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobLocation;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
 import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
 import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileListItem;
+import ru.netology.storagecloud.repositories.files.pages.PageCursor;
+import ru.netology.storagecloud.repositories.files.storage.DecodedResource;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
 import ru.netology.storagecloud.repositories.files.storage.FileStorage;
 import ru.netology.storagecloud.services.files.FileRepository;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 @Data
 @Repository
 public class FileRepositoryImpl implements FileRepository {
 
     private final FileJpaRepository database;
+    private final BlobJpaRepository blobs;
     private final FileStorage storage;
+    private final FileCache cache;
 
     @Value("${storage.path}")
     private String path;
+    @Value("${storage.blobs.shard-depth:2}")
+    private int shardDepth;
 
 
     @Override
     public UserFilesListResponse getFileList(FilesListParams params) {
-        final var files = this.database.getAllWithLimit(params.count(), this.username());
+        final var cursor = params.cursor() == null ? PageCursor.first(params.sort()) : PageCursor.decode(params.cursor());
+        if (!cursor.sort().name().equalsIgnoreCase(params.sort()))
+            throw new IllegalArgumentException("Cursor belongs to another sort");
+//        лишняя строка показывает, есть ли следующая страница
+        final var count = params.count() < Integer.MAX_VALUE ? params.count() + 1 : params.count();
+        final var files = this.cache.page(username(), cursor, count, () -> page(cursor, count));
+        final var hasNext = files.size() > params.count();
+        final var page = hasNext ? files.subList(0, params.count()) : files;
         return new UserFilesListResponse(
-                files.stream().map(f -> new FileDescription(f.getFileName(), f.getSize())).toList());
+                page.stream().map(f -> new FileDescription(f.getFileName(), f.getSize())).toList(),
+                hasNext ? PageCursor.after(cursor.sort(), page.get(page.size() - 1)).encode() : null
+        );
     }
 
     @Override
     public UserFileResponse getFile(GetFileParams params) throws IOException {
-        final var fileEntity = fileEntity(params.filename());
-        final var file = storage.readFile(
-                fileEntity.getPathDirectory(),
-                fileEntity.getUsername(),
-                fileEntity.getFileName()
+        final FileEntity fileEntity;
+        try (final var recording = PhaseRecording.start(StoragePhase.METADATA_LOOKUP)) {
+            fileEntity = this.cache.findByFileNameAndUsername(params.filename(), username()).orElseThrow();
+        }
+        final var file = fileEntity.getBlob() == null
+                ? storage.readFile(fileEntity.getPathDirectory(), fileEntity.getUsername(), fileEntity.getFileName())
+                : storage.readBlob(fileEntity.getPathDirectory(), fileEntity.getBlob(), fileEntity.getShardDepth());
+        final var codec = fileEntity.getCodec();
+        if (codec == FileCodec.NONE) return new UserFileResponse(fileEntity.getHash(), file);
+//        сжатый блоб отдается как есть клиенту, принимающему это кодирование, остальным - распакованным на лету
+        return new UserFileResponse(
+                fileEntity.getHash(),
+                new DecodedResource(file, codec, fileEntity.getSize()),
+                file,
+                codec.contentEncoding()
         );
-        return new UserFileResponse("hash of file", file);
-
     }
 
+    @Transactional
     @Override
     public void deleteFile(DeleteFileParams params) throws IOException {
         final var fileEntity = fileEntity(params.fileName());
-        storage.deleteFile(fileEntity.getPathDirectory(), fileEntity.getUsername(), fileEntity.getFileName());
+        if (fileEntity.getBlob() == null) {
+            storage.deleteFile(fileEntity.getPathDirectory(), fileEntity.getUsername(), fileEntity.getFileName());
+        } else {
+//            сам блоб удалит BlobCollector, когда на него не останется ссылок
+            this.blobs.release(fileEntity.getBlob());
+        }
         this.database.delete(fileEntity);
+        this.cache.invalidate(fileEntity.getUsername(), fileEntity.getFileName());
     }
 
+    @Transactional(rollbackFor = IOException.class)
     @Override
     public void updateFileName(UpdateFileNameParams params) throws IOException {
-        final var fileEntity = fileEntity(params.fileName());
-        storage.updateFile(
-                fileEntity.getPathDirectory(),
-                fileEntity.getUsername(),
-                fileEntity.getFileName(),
-                params.newName()
-        );
-        fileEntity.setFileName(params.newName());
-        this.database.save(fileEntity);
+        final var username = username();
+//        сначала строка: занятое имя откатывает переименование до изменений на диске;
+//        меняется только имя, строка целиком затерла бы глубину или блоб, записанные мигратором после ее чтения
+        try (final var recording = PhaseRecording.start(StoragePhase.DB_SAVE)) {
+            if (this.database.updateFileName(username, params.fileName(), params.newName()) == 0)
+                throw new NoSuchElementException();
+        }
+//        строка заблокирована до коммита, мигратор ее пропускает и файл без блоба не перенесет
+        final var fileEntity = fileEntity(params.newName());
+        if (fileEntity.getBlob() == null) {
+            storage.updateFile(fileEntity.getPathDirectory(), username, params.fileName(), params.newName());
+            AfterCompletion.onRollback(
+                    () -> storage.updateFile(fileEntity.getPathDirectory(), username, params.newName(), params.fileName())
+            );
+        }
+        this.cache.invalidate(username, params.fileName());
     }
 
+    @Transactional(rollbackFor = IOException.class)
     @Override
     public void addFile(AddFileParams params) throws IOException {
-        final var fileEntity = FileEntity.builder()
-                .size(params.content().getBytes().length)
-                .fileName(params.fileName())
-                .username(username())
-                .pathDirectory(this.path)
-                .build();
-        storage.saveFile(
-                fileEntity.getPathDirectory(),
-                fileEntity.getUsername(),
-                fileEntity.getFileName(),
-                params.content()
-        );
-        this.database.save(fileEntity);
+        final var storedFile = storage.saveFile(this.path, params.content());
+        try {
+            final BlobLocation blob;
+            try (final var recording = PhaseRecording.start(StoragePhase.DB_SAVE)) {
+                blob = this.blobs.acquire(
+                        storedFile.hash(),
+                        storedFile.size(),
+                        this.shardDepth,
+                        storedFile.codec().name(),
+                        storedFile.storedSize()
+                );
+                this.database.save(
+                        FileEntity.builder()
+                                .fileName(params.fileName())
+                                .username(username())
+                                .pathDirectory(this.path)
+                                .size(storedFile.size())
+                                .hash(storedFile.hash())
+                                .blob(storedFile.hash())
+                                .shardDepth(blob.getShardDepth())
+                                .codec(blob.getCodec())
+                                .storedSize(blob.getStoredSize())
+                                .build()
+                );
+            }
+            if (blob.getCodec() == storedFile.codec()) {
+//                файл переносится под строкой блоба, заблокированной до коммита, поэтому сборщик его не удалит
+                storage.commitBlob(this.path, storedFile, blob.getShardDepth());
+            } else {
+//                то же содержимое уже хранится с другим сжатием (например, до изменения настроек), блоб остается прежним
+                storage.discardFile(storedFile);
+            }
+            this.cache.invalidate(username(), params.fileName());
+        } catch (IOException | RuntimeException e) {
+            storage.discardFile(storedFile);
+            throw e;
+        }
+    }
+
+    private List<FileListItem> page(PageCursor cursor, int count) {
+        return switch (cursor.sort()) {
+            case ID -> this.database.getPageById(username(), cursor.id(), count);
+//            имя уникально в пределах пользователя, поэтому id для продолжения не нужен
+            case NAME -> this.database.getPageByName(username(), cursor.key(), count);
+            case SIZE -> this.database.getPageBySize(username(), Long.parseLong(cursor.key()), cursor.id(), count);
+        };
     }
 
     private String username() {
@@ -87,6 +169,8 @@ public class FileRepositoryImpl implements FileRepository {
     }
 
     private FileEntity fileEntity(String filename) {
-        return this.database.findByFileNameAndUsername(filename, username()).orElseThrow();
+        try (final var recording = PhaseRecording.start(StoragePhase.METADATA_LOOKUP)) {
+            return this.database.findByFileNameAndUsername(filename, username()).orElseThrow();
+        }
     }
 }
@@ -0,0 +1,175 @@
+package ru.netology.storagecloud.repositories.files;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+import ru.netology.storagecloud.metrics.PhaseRecording;
+import ru.netology.storagecloud.metrics.StoragePhase;
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.models.files.responses.UploadSessionResponse;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobLocation;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.UploadSessionEntity;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.UploadSessionJpaRepository;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.services.files.UploadRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+@Data
+@Repository
+public class UploadRepositoryImpl implements UploadRepository {
+
+    private final FileJpaRepository database;
+    private final BlobJpaRepository blobs;
+    private final FileStorage storage;
+    private final FileCache cache;
+//    сессии хранятся в базе: части и завершение загрузки могут прийти на любой экземпляр сервера
+    private final UploadSessionJpaRepository sessions;
+
+    @Value("${storage.path}")
+    private String path;
+    @Value("${storage.blobs.shard-depth:2}")
+    private int shardDepth;
+    @Value("${storage.upload.chunk-size:8MB}")
+    private DataSize chunkSize;
+    @Value("${storage.upload.expiration:24h}")
+    private Duration expiration;
+    @Value("${storage.upload.cleanup-batch:100}")
+    private int cleanupBatch;
+
+    @Override
+    public UploadSessionResponse openUpload(OpenUploadParams params) throws IOException {
+//        занятое имя проверяется до приема частей, иначе ошибка обнаружится только после передачи всего файла
+        final Optional<FileEntity> existing;
+        try (final var recording = PhaseRecording.start(StoragePhase.METADATA_LOOKUP)) {
+            existing = this.database.findByFileNameAndUsername(params.fileName(), username());
+        }
+        if (existing.isPresent()) throw new FileAlreadyExistsException(params.fileName());
+        final var chunkBytes = this.chunkSize.toBytes();
+        final var session = UploadSessionEntity.builder()
+                .id(UUID.randomUUID().toString())
+                .username(username())
+                .fileName(params.fileName())
+                .pathDirectory(this.path)
+                .size(params.size())
+                .chunkSize(chunkBytes)
+                .chunks(Math.toIntExact((params.size() + chunkBytes - 1) / chunkBytes))
+                .expiration(System.currentTimeMillis() + this.expiration.toMillis())
+                .build();
+        storage.createUploadFile(session.getPathDirectory(), session.getUsername(), session.getId(), session.getSize());
+        this.sessions.save(session);
+        return new UploadSessionResponse(session.getId(), session.getChunkSize(), session.getChunks());
+    }
+
+    @Override
+    public void uploadChunk(UploadChunkParams params) throws IOException {
+        final var session = session(params.uploadId());
+        if (params.index() >= session.getChunks()) throw new IllegalArgumentException("Chunk index out of range");
+        final var position = params.index() * session.getChunkSize();
+        final var count = Math.min(session.getChunkSize(), session.getSize() - position);
+        final var written = storage.writeChunk(
+                session.getPathDirectory(),
+                session.getUsername(),
+                session.getId(),
+                position,
+                count,
+                params.content()
+        );
+        if (written != count || params.content().read() != -1)
+            throw new IllegalArgumentException("Chunk size does not match");
+        this.sessions.addChunk(session.getId(), params.index());
+    }
+
+    @Transactional(rollbackFor = IOException.class)
+    @Override
+    public void commitUpload(CommitUploadParams params) throws IOException {
+        final var session = session(params.uploadId());
+        if (this.sessions.countChunks(session.getId()) != session.getChunks())
+            throw new IllegalArgumentException("Upload is not complete");
+//        при откате транзакции сессия возвращается вместе с файлом загрузки, и завершение можно повторить
+        if (this.sessions.remove(session.getId()) == 0) throw new NoSuchElementException();
+        final var storedFile = storage.hashUploadFile(session.getPathDirectory(), session.getUsername(), session.getId());
+        final BlobLocation blob;
+        try (final var recording = PhaseRecording.start(StoragePhase.DB_SAVE)) {
+            blob = this.blobs.acquire(
+                    storedFile.hash(),
+                    storedFile.size(),
+                    this.shardDepth,
+                    storedFile.codec().name(),
+                    storedFile.storedSize()
+            );
+            this.database.save(
+                    FileEntity.builder()
+                            .fileName(session.getFileName())
+                            .username(session.getUsername())
+                            .pathDirectory(session.getPathDirectory())
+                            .size(storedFile.size())
+                            .hash(storedFile.hash())
+                            .blob(storedFile.hash())
+                            .shardDepth(blob.getShardDepth())
+                            .codec(blob.getCodec())
+                            .storedSize(blob.getStoredSize())
+                            .build()
+            );
+        }
+//        файл загрузки переносится только после коммита: до него строка может не сохраниться, например из-за занятого имени
+//        загрузка по частям не сжимается, но такое же содержимое могло быть сохранено сжатым через POST /file
+        if (blob.getCodec() == storedFile.codec()) {
+            AfterCompletion.onCommit(() -> storage.commitBlob(session.getPathDirectory(), storedFile, blob.getShardDepth()));
+        } else {
+            AfterCompletion.onCommit(() -> storage.discardFile(storedFile));
+        }
+        this.cache.invalidate(session.getUsername(), session.getFileName());
+    }
+
+    @Scheduled(fixedDelayString = "${storage.upload.cleanup-interval:60000}")
+    public void removeExpiredSessions() {
+        for (var session : this.sessions.findExpired(System.currentTimeMillis(), this.cleanupBatch)) {
+            try {
+//                очистку выполняют все экземпляры: файл и строку удалит тот, кто успеет первым
+                storage.deleteUploadFile(session.getPathDirectory(), session.getUsername(), session.getId());
+                this.sessions.remove(session.getId());
+            } catch (IOException e) {
+//                повторная попытка при следующем запуске очистки
+            }
+        }
+    }
+
+//    файл старше срока загрузки не может принадлежать живой сессии или сохраняемому файлу
+    @Scheduled(fixedDelayString = "${storage.upload.stale-cleanup-interval:3600000}")
+    public void removeStaleFiles() {
+        try {
+            storage.deleteStaleFiles(this.path, Instant.now().minus(this.expiration));
+        } catch (IOException | UncheckedIOException e) {
+//            повторная попытка при следующем запуске очистки
+        }
+    }
+
+    private UploadSessionEntity session(String uploadId) {
+        final var session = this.sessions.findById(uploadId).orElseThrow();
+        if (!session.getUsername().equals(username()) || session.getExpiration() < System.currentTimeMillis())
+            throw new NoSuchElementException();
+        return session;
+    }
+
+    private String username() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
@@ -0,0 +1,189 @@
+package ru.netology.storagecloud.repositories.files.cache;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.netology.storagecloud.metrics.StorageMetrics;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileListItem;
+import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.pages.PageCursor;
+import ru.netology.storagecloud.repositories.invalidation.CacheInvalidation;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+@Data
+@Component
+public class FileCache {
+
+    private static final int PAGES_PER_USER = 16;
+
+    private final FileJpaRepository fileJpaRepository;
+    private final InvalidationPublisher publisher;
+    private final Map<FileKey, CachedFile> files = new ConcurrentHashMap<>();
+    private final Map<String, Map<PageKey, CachedPage>> pages = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${storage.cache.max-size:10000}")
+    private int maxSize;
+    @Value("${storage.cache.ttl:30s}")
+    private Duration ttl;
+
+//    сущность из кеша только для чтения: удаление и переименование читают строку из базы
+    public Optional<FileEntity> findByFileNameAndUsername(String fileName, String username) {
+        final var key = new FileKey(username, fileName);
+        final var now = System.currentTimeMillis();
+        final var cached = this.files.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() >= now) {
+                StorageMetrics.FILE_CACHE_HITS.increment();
+                return Optional.of(copy(cached.file()));
+            }
+            this.files.remove(key, cached);
+        }
+        StorageMetrics.FILE_CACHE_MISSES.increment();
+        final var generation = this.generation.get();
+        final var file = this.fileJpaRepository.findByFileNameAndUsername(fileName, username);
+        if (this.maxSize > 0) file.ifPresent(f -> putFile(key, copy(f), generation, now));
+        return file;
+    }
+
+    public List<FileListItem> page(String username, PageCursor cursor, int count, Supplier<List<FileListItem>> loader) {
+        final var key = new PageKey(cursor, count);
+        final var now = System.currentTimeMillis();
+        final var userPages = this.pages.get(username);
+        final var cached = userPages == null ? null : userPages.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() >= now) {
+                StorageMetrics.LIST_CACHE_HITS.increment();
+                return cached.files();
+            }
+            userPages.remove(key, cached);
+        }
+        StorageMetrics.LIST_CACHE_MISSES.increment();
+        final var generation = this.generation.get();
+        final var files = loader.get();
+        if (this.maxSize > 0) putPage(username, key, files, generation, now);
+        return files;
+    }
+
+//    запись удаляется после коммита, иначе параллельный запрос успеет закешировать еще не измененную строку;
+//    уведомление другим экземплярам postgres тоже доставит только после коммита
+    public void invalidate(String username, String... fileNames) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(username, fileNames);
+                }
+            });
+        } else {
+            evict(username, fileNames);
+        }
+        this.publisher.publish(CacheInvalidation.Cache.FILE, username, fileNames);
+    }
+
+    public void invalidateAll() {
+        evictAll();
+        this.publisher.publish(CacheInvalidation.Cache.FILE, null);
+    }
+
+    public void evictAll() {
+        this.generation.incrementAndGet();
+        this.files.clear();
+        this.pages.clear();
+    }
+
+    public void evict(String username, String... fileNames) {
+        this.generation.incrementAndGet();
+        for (var fileName : fileNames) {
+            this.files.remove(new FileKey(username, fileName));
+        }
+        this.pages.remove(username);
+    }
+
+    private void putFile(FileKey key, FileEntity file, long generation, long now) {
+        if (this.files.size() >= this.maxSize) evict(this.files, this.maxSize, cached -> cached.expiresAt() < now);
+        final var cached = new CachedFile(file, now + this.ttl.toMillis());
+        this.files.put(key, cached);
+//        файл мог быть изменен, пока читалась база: такая запись не должна остаться в кеше
+        if (this.generation.get() != generation) this.files.remove(key, cached);
+    }
+
+    private void putPage(String username, PageKey key, List<FileListItem> files, long generation, long now) {
+        if (this.pages.size() >= this.maxSize) evict(this.pages, this.maxSize, Map::isEmpty);
+        final var userPages = this.pages.computeIfAbsent(username, name -> new ConcurrentHashMap<>());
+        if (userPages.size() >= PAGES_PER_USER) evict(userPages, PAGES_PER_USER, cached -> cached.expiresAt() < now);
+//        копия, потому что строки проекции связаны с закрытой сессией
+        final var cached = new CachedPage(
+                files.stream().<FileListItem>map(f -> new CachedListItem(f.getId(), f.getFileName(), f.getSize())).toList(),
+                now + this.ttl.toMillis()
+        );
+        userPages.put(key, cached);
+        if (this.generation.get() != generation) userPages.remove(key, cached);
+    }
+
+    private static <K, V> void evict(Map<K, V> map, int limit, Predicate<V> expired) {
+        map.values().removeIf(expired);
+        final var iterator = map.keySet().iterator();
+        while (map.size() >= limit && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static FileEntity copy(FileEntity file) {
+        return FileEntity.builder()
+                .id(file.getId())
+                .pathDirectory(file.getPathDirectory())
+                .fileName(file.getFileName())
+                .size(file.getSize())
+                .username(file.getUsername())
+                .hash(file.getHash())
+                .blob(file.getBlob())
+                .shardDepth(file.getShardDepth())
+                .codec(file.getCodec())
+                .storedSize(file.getStoredSize())
+                .build();
+    }
+
+    private record FileKey(String username, String fileName) {
+    }
+
+    private record PageKey(PageCursor cursor, int count) {
+    }
+
+    private record CachedFile(FileEntity file, long expiresAt) {
+    }
+
+    private record CachedPage(List<FileListItem> files, long expiresAt) {
+    }
+
+    private record CachedListItem(int id, String fileName, long size) implements FileListItem {
+
+        @Override
+        public int getId() {
+            return this.id;
+        }
+
+        @Override
+        public String getFileName() {
+            return this.fileName;
+        }
+
+        @Override
+        public long getSize() {
+            return this.size;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.netology.storagecloud.repositories.files.dao.entities;
+
+
+import jakarta.persistence.*;
+import lombok.*;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
+
+import java.util.Objects;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "blobs", indexes = {
+        @Index(name = "idx_ref_count", columnList = "ref_count")
+})
+public class BlobEntity {
+
+    @Id
+    @Column(nullable = false)
+    private String hash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false, name = "ref_count")
+    private int refCount;
+
+    @Column(nullable = false, name = "shard_depth")
+    private int shardDepth;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private FileCodec codec = FileCodec.NONE;
+
+    @Column(nullable = false, name = "stored_size")
+    private long storedSize;
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || !obj.getClass().equals(this.getClass())) return false;
+        BlobEntity blobEntity = (BlobEntity) obj;
+        return Objects.equals(this.hash, blobEntity.hash)
+                && this.size == blobEntity.size
+                && this.refCount == blobEntity.refCount
+                && this.shardDepth == blobEntity.shardDepth
+                && this.codec == blobEntity.codec
+                && this.storedSize == blobEntity.storedSize;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.netology.storagecloud.repositories.files.dao.entities;
+
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
+
+public interface BlobLocation {
+
+    int getShardDepth();
+
+    FileCodec getCodec();
+
+    long getStoredSize();
+}
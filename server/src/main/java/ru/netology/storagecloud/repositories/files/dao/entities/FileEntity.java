@@ -3,6 +3,7 @@ package ru.netology.storagecloud.repositories.files.dao.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
 
 import java.util.Objects;
 
@@ -14,10 +15,11 @@ import java.util.Objects;
 @Builder
 @Entity
 @Table(name = "files", indexes = {
-        @Index(name = "idx_username", columnList = "username"),
-        @Index(name = "idx_filename", columnList = "file_name")
+        @Index(name = "uq_username_file_name", columnList = "username, file_name", unique = true),
+        @Index(name = "idx_username_id", columnList = "username, id"),
+        @Index(name = "idx_username_size_id", columnList = "username, size, id")
 })
-public class FileEntity {
+public class FileEntity implements FileListItem {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -30,11 +32,28 @@ public class FileEntity {
     private String fileName;
 
     @Column(nullable = false)
-    private int size;
+    private long size;
 
     @Column(nullable = false)
     private String username;
 
+    @Column
+    private String hash;
+
+    @Column
+    private String blob;
+
+    @Column(nullable = false, name = "shard_depth")
+    private int shardDepth;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private FileCodec codec = FileCodec.NONE;
+
+    @Column(nullable = false, name = "stored_size")
+    private long storedSize;
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -44,6 +63,11 @@ public class FileEntity {
                 && Objects.equals(this.pathDirectory, fileEntity.pathDirectory)
                 && Objects.equals(this.fileName, fileEntity.fileName)
                 && this.size == fileEntity.size
-                && Objects.equals(this.username, fileEntity.username);
+                && Objects.equals(this.username, fileEntity.username)
+                && Objects.equals(this.hash, fileEntity.hash)
+                && Objects.equals(this.blob, fileEntity.blob)
+                && this.shardDepth == fileEntity.shardDepth
+                && this.codec == fileEntity.codec
+                && this.storedSize == fileEntity.storedSize;
     }
 }
@@ -0,0 +1,10 @@
+package ru.netology.storagecloud.repositories.files.dao.entities;
+
+public interface FileListItem {
+
+    int getId();
+
+    String getFileName();
+
+    long getSize();
+}
@@ -0,0 +1,55 @@
+package ru.netology.storagecloud.repositories.files.dao.entities;
+
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Objects;
+
+//путь, оставшийся после переноса: файл старого формата (hash пустой) или блоб на прежней глубине
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "old_locations")
+public class OldLocationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "path_directory")
+    private String pathDirectory;
+
+    @Column
+    private String username;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column
+    private String hash;
+
+    @Column(nullable = false, name = "shard_depth")
+    private int shardDepth;
+
+    @Column(nullable = false)
+    private long moved;
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || !obj.getClass().equals(this.getClass())) return false;
+        OldLocationEntity location = (OldLocationEntity) obj;
+        return this.id == location.id
+                && Objects.equals(this.pathDirectory, location.pathDirectory)
+                && Objects.equals(this.username, location.username)
+                && Objects.equals(this.fileName, location.fileName)
+                && Objects.equals(this.hash, location.hash)
+                && this.shardDepth == location.shardDepth
+                && this.moved == location.moved;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.netology.storagecloud.repositories.files.dao.entities;
+
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Objects;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_expiration", columnList = "expiration")
+})
+public class UploadSessionEntity {
+
+    @Id
+    @Column(nullable = false)
+    private String id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false, name = "file_name")
+    private String fileName;
+
+    @Column(nullable = false, name = "path_directory")
+    private String pathDirectory;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false, name = "chunk_size")
+    private long chunkSize;
+
+    @Column(nullable = false)
+    private int chunks;
+
+    @Column(nullable = false)
+    private long expiration;
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || !obj.getClass().equals(this.getClass())) return false;
+        UploadSessionEntity session = (UploadSessionEntity) obj;
+        return Objects.equals(this.id, session.id)
+                && Objects.equals(this.username, session.username)
+                && Objects.equals(this.fileName, session.fileName)
+                && Objects.equals(this.pathDirectory, session.pathDirectory)
+                && this.size == session.size
+                && this.chunkSize == session.chunkSize
+                && this.chunks == session.chunks
+                && this.expiration == session.expiration;
+    }
+}
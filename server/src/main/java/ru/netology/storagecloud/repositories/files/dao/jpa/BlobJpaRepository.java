@@ -0,0 +1,42 @@
+package ru.netology.storagecloud.repositories.files.dao.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobLocation;
+
+import java.util.List;
+
+public interface BlobJpaRepository extends JpaRepository<BlobEntity, String> {
+
+//    возвращает, где и как лежит блоб: у существующего блоба глубина и сжатие могут отличаться от запрошенных;
+//    блоб без ссылок ждет удаления, его файл будет заменен новым, поэтому сжатие и размеры берутся новые
+    @Transactional
+    @Query(nativeQuery = true, value = "insert into blobs (hash, size, ref_count, shard_depth, codec, stored_size) " +
+            "values (?1, ?2, 1, ?3, ?4, ?5) on conflict (hash) do update set ref_count = blobs.ref_count + 1, " +
+            "size = case when blobs.ref_count = 0 then excluded.size else blobs.size end, " +
+            "codec = case when blobs.ref_count = 0 then excluded.codec else blobs.codec end, " +
+            "stored_size = case when blobs.ref_count = 0 then excluded.stored_size else blobs.stored_size end " +
+            "returning shard_depth as \"shardDepth\", codec as \"codec\", stored_size as \"storedSize\"")
+    BlobLocation acquire(String hash, long size, int shardDepth, String codec, long storedSize);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "update blobs set ref_count = ref_count - 1 where hash = ?1")
+    void release(String hash);
+
+//    файл без строки (например, после отката транзакции загрузки) становится блобом без ссылок и удаляется сборщиком
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into blobs (hash, size, ref_count, shard_depth, codec, stored_size) " +
+            "values (?1, ?3, 0, ?2, 'NONE', ?3) on conflict (hash) do nothing")
+    void adopt(String hash, int shardDepth, long size);
+
+    @Query(nativeQuery = true, value = "select * from blobs b where b.ref_count = 0 limit ?1 for update skip locked")
+    List<BlobEntity> lockUnreferenced(int count);
+
+    @Query(nativeQuery = true, value = "select * from blobs b where b.shard_depth <> ?1 and b.ref_count > 0 " +
+            "limit ?2 for update skip locked")
+    List<BlobEntity> lockOtherShardDepth(int shardDepth, int count);
+}
@@ -1,16 +1,39 @@
 package ru.netology.storagecloud.repositories.files.dao.jpa;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileListItem;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface FileJpaRepository extends JpaRepository<FileEntity, Integer> {
 
-    @Query(nativeQuery = true, value = "select * from files f where f.username = ?2 limit ?1")
-    List<FileEntity> getAllWithLimit(int count, String username);
+    @Query(nativeQuery = true, value = "select f.id as \"id\", f.file_name as \"fileName\", f.size as \"size\" " +
+            "from files f where f.username = ?1 and f.id > ?2 order by f.id limit ?3")
+    List<FileListItem> getPageById(String username, int afterId, int count);
+
+    @Query(nativeQuery = true, value = "select f.id as \"id\", f.file_name as \"fileName\", f.size as \"size\" " +
+            "from files f where f.username = ?1 and f.file_name > ?2 order by f.file_name limit ?3")
+    List<FileListItem> getPageByName(String username, String afterName, int count);
+
+    @Query(nativeQuery = true, value = "select f.id as \"id\", f.file_name as \"fileName\", f.size as \"size\" " +
+            "from files f where f.username = ?1 and (f.size, f.id) > (?2, ?3) order by f.size, f.id limit ?4")
+    List<FileListItem> getPageBySize(String username, long afterSize, int afterId, int count);
 
     Optional<FileEntity> findByFileNameAndUsername(String fileName, String username);
+
+    @Query(nativeQuery = true, value = "select * from files f where f.blob is null " +
+            "order by f.id limit ?1 for update skip locked")
+    List<FileEntity> lockWithoutBlob(int count);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "update files set shard_depth = ?2 where blob = ?1")
+    void updateShardDepth(String blob, int shardDepth);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "update files set file_name = ?3 where username = ?1 and file_name = ?2")
+    int updateFileName(String username, String fileName, String newName);
 }
@@ -0,0 +1,13 @@
+package ru.netology.storagecloud.repositories.files.dao.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.netology.storagecloud.repositories.files.dao.entities.OldLocationEntity;
+
+import java.util.List;
+
+public interface OldLocationJpaRepository extends JpaRepository<OldLocationEntity, Long> {
+
+    @Query(nativeQuery = true, value = "select * from old_locations l where l.moved < ?1 order by l.id limit ?2")
+    List<OldLocationEntity> findMovedBefore(long moved, int count);
+}
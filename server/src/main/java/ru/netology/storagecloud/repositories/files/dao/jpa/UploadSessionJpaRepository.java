@@ -0,0 +1,31 @@
+package ru.netology.storagecloud.repositories.files.dao.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.netology.storagecloud.repositories.files.dao.entities.UploadSessionEntity;
+
+import java.util.List;
+
+public interface UploadSessionJpaRepository extends JpaRepository<UploadSessionEntity, String> {
+
+//    повторно загруженная часть не считается дважды
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into upload_chunks (upload_id, chunk_index) values (?1, ?2) " +
+            "on conflict do nothing")
+    void addChunk(String uploadId, int index);
+
+    @Query(nativeQuery = true, value = "select count(*) from upload_chunks c where c.upload_id = ?1")
+    int countChunks(String uploadId);
+
+//    удаление строки - единственный способ захватить сессию: второй экземпляр, завершающий ту же загрузку, получит 0
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from upload_sessions where id = ?1")
+    int remove(String uploadId);
+
+    @Query(nativeQuery = true, value = "select * from upload_sessions s where s.expiration < ?1 limit ?2")
+    List<UploadSessionEntity> findExpired(long now, int count);
+}
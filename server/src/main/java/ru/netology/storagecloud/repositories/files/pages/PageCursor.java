@@ -0,0 +1,53 @@
+package ru.netology.storagecloud.repositories.files.pages;
+
+import ru.netology.storagecloud.repositories.files.dao.entities.FileListItem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+public record PageCursor(Sort sort, String key, int id) {
+
+    private static final String SEPARATOR = ":";
+
+    public static PageCursor first(String sort) {
+        final var value = Sort.valueOf(sort.toUpperCase(Locale.ROOT));
+        return new PageCursor(value, value.firstKey, 0);
+    }
+
+    public static PageCursor after(Sort sort, FileListItem file) {
+        final var key = switch (sort) {
+            case ID -> "";
+            case NAME -> file.getFileName();
+            case SIZE -> String.valueOf(file.getSize());
+        };
+        return new PageCursor(sort, key, file.getId());
+    }
+
+    public static PageCursor decode(String token) {
+        final var value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+//        ключ идет последним, так как имя файла может содержать разделитель
+        final var parts = value.split(SEPARATOR, 3);
+        if (parts.length != 3) throw new IllegalArgumentException("Invalid cursor");
+        final var cursor = new PageCursor(Sort.valueOf(parts[0]), parts[2], Integer.parseInt(parts[1]));
+        if (cursor.sort() == Sort.SIZE) Long.parseLong(cursor.key());
+        return cursor;
+    }
+
+    public String encode() {
+        final var value = this.sort.name() + SEPARATOR + this.id + SEPARATOR + this.key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public enum Sort {
+        ID(""),
+        NAME(""),
+        SIZE("-1");
+
+        private final String firstKey;
+
+        Sort(String firstKey) {
+            this.firstKey = firstKey;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package ru.netology.storagecloud.repositories.files.storage;
+
+public record BlobFile(String hash, int shardDepth, long size) {
+}
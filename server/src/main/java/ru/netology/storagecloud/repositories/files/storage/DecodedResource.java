@@ -0,0 +1,69 @@
+package ru.netology.storagecloud.repositories.files.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+//распаковывает сжатый блоб при каждом чтении; размер - исходный, поэтому Range по распакованному содержимому работает
+public class DecodedResource extends AbstractResource {
+
+    private final Resource stored;
+    private final FileCodec codec;
+    private final long size;
+
+    public DecodedResource(Resource stored, FileCodec codec, long size) {
+        this.stored = stored;
+        this.codec = codec;
+        this.size = size;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        final var input = this.stored.getInputStream();
+        try {
+            return this.codec.decode(input);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean exists() {
+        return this.stored.exists();
+    }
+
+    @Override
+    public long contentLength() {
+        return this.size;
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return this.stored.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return this.stored.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return this.codec + " decoded " + this.stored.getDescription();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof DecodedResource other)) return false;
+        return this.stored.equals(other.stored) && this.codec == other.codec && this.size == other.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.stored.hashCode();
+    }
+}
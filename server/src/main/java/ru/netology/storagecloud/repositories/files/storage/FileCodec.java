@@ -0,0 +1,55 @@
+package ru.netology.storagecloud.repositories.files.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public enum FileCodec {
+
+    NONE(null) {
+        @Override
+        public OutputStream encode(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        public InputStream decode(InputStream input) {
+            return input;
+        }
+    },
+//    gzip совпадает с кодированием HTTP, поэтому сжатый блоб можно отдать клиенту без распаковки
+    GZIP("gzip") {
+        @Override
+        public OutputStream encode(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output, BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream input) throws IOException {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String contentEncoding;
+
+    FileCodec(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String contentEncoding() {
+        return this.contentEncoding;
+    }
+
+    public abstract OutputStream encode(OutputStream output) throws IOException;
+
+    public abstract InputStream decode(InputStream input) throws IOException;
+}
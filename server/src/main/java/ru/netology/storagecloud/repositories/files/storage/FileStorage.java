@@ -1,41 +1,416 @@
 package ru.netology.storagecloud.repositories.files.storage;
 
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import ru.netology.storagecloud.metrics.PhaseRecording;
+import ru.netology.storagecloud.metrics.StorageMetrics;
+import ru.netology.storagecloud.metrics.StoragePhase;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
+@RequiredArgsConstructor
 @Component
 public class FileStorage {
 
-    public byte[] readFile(String directory, String username, String file) throws IOException {
-        return Files.readAllBytes(Path.of(directory, username, file));
+    private static final String UPLOAD_FILE_SUFFIX = ".upload";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String BLOBS_DIRECTORY = ".blobs";
+    private static final int SHARD_WIDTH = 2;
+    private static final int MAX_SHARD_DEPTH = 8;
+    private static final int SAMPLE_SIZE = 64 * 1024;
+//    архивы, изображения, аудио и видео уже сжаты, повторное сжатие только тратит процессор
+    private static final List<Signature> COMPRESSED_SIGNATURES = List.of(
+            Signature.of(0, 0x1f, 0x8b),
+            Signature.of(0, 'P', 'K', 0x03, 0x04),
+            Signature.of(0, 0x28, 0xb5, 0x2f, 0xfd),
+            Signature.of(0, 0xfd, '7', 'z', 'X', 'Z', 0x00),
+            Signature.of(0, 'B', 'Z', 'h'),
+            Signature.of(0, '7', 'z', 0xbc, 0xaf, 0x27, 0x1c),
+            Signature.of(0, 'R', 'a', 'r', '!'),
+            Signature.of(0, 0x04, 0x22, 0x4d, 0x18),
+            Signature.of(0, 0x89, 'P', 'N', 'G'),
+            Signature.of(0, 0xff, 0xd8, 0xff),
+            Signature.of(0, 'G', 'I', 'F', '8'),
+            Signature.of(8, 'W', 'E', 'B', 'P'),
+            Signature.of(4, 'f', 't', 'y', 'p'),
+            Signature.of(0, 0x1a, 0x45, 0xdf, 0xa3),
+            Signature.of(0, 'O', 'g', 'g', 'S'),
+            Signature.of(0, 'I', 'D', '3'),
+            Signature.of(0, 'f', 'L', 'a', 'C')
+    );
+
+//    хэш - адрес блоба: алгоритм с известными коллизиями позволил бы подменить чужой файл
+    private static final Set<String> HASH_ALGORITHMS = Set.of(
+            "SHA-256", "SHA-384", "SHA-512", "SHA-512/256", "SHA3-256", "SHA3-384", "SHA3-512"
+    );
+
+    private final FileSync sync;
+
+    @Value("${storage.hash-algorithm:SHA-256}")
+    private String hashAlgorithm;
+    @Value("${storage.compression.enabled:true}")
+    private boolean compression;
+    @Value("${storage.compression.min-size:4KB}")
+    private DataSize compressionMinSize;
+    @Value("${storage.compression.max-ratio:0.9}")
+    private double compressionMaxRatio;
+
+    @PostConstruct
+    public void checkHashAlgorithm() {
+        if (!HASH_ALGORITHMS.contains(this.hashAlgorithm.toUpperCase())) {
+            throw new IllegalStateException("Unsupported storage.hash-algorithm " + this.hashAlgorithm
+                    + ", expected one of " + HASH_ALGORITHMS);
+        }
     }
 
-    public void deleteFile(String directory, String username, String file) throws IOException {
-        Files.delete(Path.of(directory, username, file));
+    public Resource readBlob(String directory, String hash, int shardDepth) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.FILE_CHECK)) {
+            final var resource = new FileSystemResource(blobPath(directory, hash, shardDepth));
+            if (!resource.isReadable()) throw new NoSuchFileException(resource.getPath());
+            return resource;
+        }
     }
 
-    public void saveFile(String directory, String username, String fileName, MultipartFile content) throws IOException {
+    public StoredFile saveFile(String directory, MultipartFile content) throws IOException {
         checkDirectory(directory);
-        checkDirectory(directory + username + "/");
-        final var pathFile = Path.of(directory, username, fileName);
-        if (Files.notExists(pathFile)) Files.createFile(pathFile);
-        Files.write(pathFile, content.getBytes());
+        checkDirectory(Path.of(directory, BLOBS_DIRECTORY).toString());
+//        решение о сжатии принимается по началу файла; если остаток сжимается хуже, файл все равно остается сжатым,
+//        чтобы не записывать и не сбрасывать на диск все содержимое второй раз
+        final var file = writeFile(directory, content, codec(content));
+        StorageMetrics.UPLOADED_BYTES.increment(file.size());
+        return file;
+    }
+
+    public void commitBlob(String directory, StoredFile file, int shardDepth) throws IOException {
+        final var blobPath = blobPath(directory, file.hash(), shardDepth);
+        createShardDirectories(blobPath);
+//        одинаковый хеш - одинаковое содержимое, поэтому существующий блоб можно заменить
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_MOVE)) {
+            Files.move(
+                    file.path(),
+                    blobPath,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+        }
+        sync.syncDirectory(blobPath.getParent());
+    }
+
+    public void discardFile(StoredFile file) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_DELETE)) {
+            Files.deleteIfExists(file.path());
+        }
+    }
+
+    public void deleteBlob(String directory, String hash, int shardDepth) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_DELETE)) {
+            Files.deleteIfExists(blobPath(directory, hash, shardDepth));
+        }
+    }
+
+    public void linkBlob(String directory, String hash, int shardDepth, int newShardDepth) throws IOException {
+        link(blobPath(directory, hash, shardDepth), blobPath(directory, hash, newShardDepth));
+    }
+
+    public void linkFileToBlob(
+            String directory,
+            String username,
+            String file,
+            String blobDirectory,
+            String hash,
+            int shardDepth
+    ) throws IOException {
+        link(Path.of(directory, username, file), blobPath(blobDirectory, hash, shardDepth));
+    }
+
+    public StoredFile hashFile(String directory, String username, String file) throws IOException {
+        return hash(Path.of(directory, username, file));
+    }
+
+    public Resource readFile(String directory, String username, String file) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.FILE_CHECK)) {
+            final var resource = new FileSystemResource(Path.of(directory, username, file));
+            if (!resource.isReadable()) throw new NoSuchFileException(resource.getPath());
+            return resource;
+        }
+    }
+
+    public void deleteFile(String directory, String username, String file) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_DELETE)) {
+            Files.delete(Path.of(directory, username, file));
+        }
     }
 
     public void updateFile(String directory, String username, String file, String newFileName) throws IOException {
         final var path = Path.of(directory, username, file);
         final var newPath = Path.of(directory, username, newFileName);
-        Files.move(path, newPath);
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_MOVE)) {
+            Files.move(path, newPath);
+        }
     }
 
-    private void checkDirectory(String name) throws IOException {
-        final var path = Path.of(name);
-        if (Files.notExists(path) || !Files.isDirectory(path)) {
+    public void createUploadFile(String directory, String username, String uploadId, long size) throws IOException {
+        checkDirectory(directory);
+        checkDirectory(directory + username + "/");
+        try (
+                final var recording = PhaseRecording.start(StoragePhase.DISK_WRITE);
+                final var file = new RandomAccessFile(uploadPath(directory, username, uploadId).toFile(), "rw")
+        ) {
+            file.setLength(size);
+        }
+    }
+
+    public long writeChunk(
+            String directory,
+            String username,
+            String uploadId,
+            long position,
+            long count,
+            InputStream content
+    ) throws IOException {
+        try (
+                final var recording = PhaseRecording.start(StoragePhase.DISK_WRITE);
+                final var channel = FileChannel.open(uploadPath(directory, username, uploadId), StandardOpenOption.WRITE)
+        ) {
+            final var written = channel.transferFrom(Channels.newChannel(content), position, count);
+            StorageMetrics.UPLOADED_BYTES.increment(written);
+            return written;
+        }
+    }
+
+    public StoredFile hashUploadFile(String directory, String username, String uploadId) throws IOException {
+//        части приходят в произвольном порядке, поэтому хеш считается один раз по собранному файлу
+        final var path = uploadPath(directory, username, uploadId);
+        try (final var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            sync.syncFile(channel);
+        }
+        return hash(path);
+    }
+
+    public void deleteUploadFile(String directory, String username, String uploadId) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_DELETE)) {
+            Files.deleteIfExists(uploadPath(directory, username, uploadId));
+        }
+    }
+
+//    временные файлы, оставшиеся после сбоя сервера, не принадлежат ни одной загрузке
+    public void deleteStaleFiles(String directory, Instant modifiedBefore) throws IOException {
+        final var root = Path.of(directory);
+        if (!Files.isDirectory(root)) return;
+        try (
+                final var recording = PhaseRecording.start(StoragePhase.DISK_DELETE);
+                final var paths = Files.find(
+                        root,
+                        2,
+                        (path, attributes) -> isTemporary(path)
+                                && attributes.lastModifiedTime().toInstant().isBefore(modifiedBefore)
+                )
+        ) {
+            for (var path : (Iterable<Path>) paths::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+//    файлы блобов, не менявшиеся с changedBefore; глубина определяется по вложенности файла
+    public Stream<BlobFile> findBlobs(String directory, Instant changedBefore) throws IOException {
+        final var root = Path.of(directory, BLOBS_DIRECTORY);
+        if (!Files.isDirectory(root)) return Stream.empty();
+        return Files.find(
+                        root,
+                        MAX_SHARD_DEPTH + 1,
+                        (path, attributes) -> attributes.isRegularFile()
+                                && !path.getFileName().toString().startsWith(".")
+                                && changedAt(path, attributes).isBefore(changedBefore)
+                )
+                .map(path -> new BlobFile(
+                        path.getFileName().toString(),
+                        root.relativize(path).getNameCount() - 1,
+                        path.toFile().length()
+                ));
+    }
+
+    private StoredFile writeFile(String directory, MultipartFile content, FileCodec codec) throws IOException {
+        final var tempPath = Path.of(directory, BLOBS_DIRECTORY, "." + UUID.randomUUID() + TEMP_FILE_SUFFIX);
+        final var digest = messageDigest();
+        try {
+            final long size;
+            try (
+                    final var recording = PhaseRecording.start(StoragePhase.DISK_WRITE);
+                    final var input = new DigestInputStream(content.getInputStream(), digest);
+                    final var output = codec.encode(Files.newOutputStream(tempPath, StandardOpenOption.CREATE_NEW))
+            ) {
+                size = input.transferTo(output);
+            }
+//            содержимое сбрасывается до переименования, чтобы после сбоя под именем блоба не оказался обрезанный файл
+            try (final var channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                sync.syncFile(channel);
+                return new StoredFile(tempPath, size, HexFormat.of().formatHex(digest.digest()), codec, channel.size());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+    }
+
+//    сжатие выбирается по содержимому, а не по расширению: блоб с одним хешем общий для файлов с разными именами
+    private FileCodec codec(MultipartFile content) throws IOException {
+        if (!this.compression || content.getSize() < this.compressionMinSize.toBytes()) return FileCodec.NONE;
+        final byte[] sample;
+        try (final var input = content.getInputStream()) {
+            sample = input.readNBytes(SAMPLE_SIZE);
+        }
+        for (var signature : COMPRESSED_SIGNATURES) {
+            if (startsWith(sample, signature.offset(), signature.bytes())) return FileCodec.NONE;
+        }
+//        сжимается только образец в памяти: несжимаемое содержимое без сигнатуры отсеивается до записи на диск
+        final var compressed = new CountingOutputStream();
+        try (final var output = FileCodec.GZIP.encode(compressed)) {
+            output.write(sample);
+        }
+        return compressed.count <= sample.length * this.compressionMaxRatio ? FileCodec.GZIP : FileCodec.NONE;
+    }
+
+    private static boolean startsWith(byte[] header, int offset, byte[] bytes) {
+        if (header.length < offset + bytes.length) return false;
+        return Arrays.equals(header, offset, offset + bytes.length, bytes, 0, bytes.length);
+    }
+
+    private StoredFile hash(Path path) throws IOException {
+        final var digest = messageDigest();
+        try (
+                final var recording = PhaseRecording.start(StoragePhase.DISK_READ);
+                final var input = new DigestInputStream(Files.newInputStream(path), digest)
+        ) {
+            final var size = input.transferTo(OutputStream.nullOutputStream());
+            return new StoredFile(path, size, HexFormat.of().formatHex(digest.digest()));
+        }
+    }
+
+//    жесткая ссылка: файл доступен по обоим путям, пока старый путь не будет удален
+    private void link(Path source, Path target) throws IOException {
+        createShardDirectories(target);
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_MOVE)) {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+//            одинаковый хеш - одинаковое содержимое
+            return;
+        }
+        sync.syncDirectory(target.getParent());
+    }
+
+    private MessageDigest messageDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(this.hashAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+//    блоб лежит в shardDepth вложенных директориях по первым символам хеша: .blobs/ab/cd/abcd...
+    private Path blobPath(String directory, String hash, int shardDepth) {
+        var path = Path.of(directory, BLOBS_DIRECTORY);
+        for (var level = 0; level < shardDepth; level++) {
+            path = path.resolve(hash.substring(level * SHARD_WIDTH, (level + 1) * SHARD_WIDTH));
+        }
+        return path.resolve(hash);
+    }
+
+//    создание жесткой ссылки меняет ctime, но не mtime: по ctime видно, что файл недавно перенесен
+    private static Instant changedAt(Path path, BasicFileAttributes attributes) {
+        try {
+            final var changed = ((FileTime) Files.getAttribute(path, "unix:ctime")).toInstant();
+            final var modified = attributes.lastModifiedTime().toInstant();
+            return changed.isAfter(modified) ? changed : modified;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return attributes.lastModifiedTime().toInstant();
+        }
+    }
+
+    private boolean isTemporary(Path path) {
+        final var name = path.getFileName().toString();
+        return name.startsWith(".") && (name.endsWith(TEMP_FILE_SUFFIX) || name.endsWith(UPLOAD_FILE_SUFFIX));
+    }
+
+    private Path uploadPath(String directory, String username, String uploadId) {
+        return Path.of(directory, username, "." + uploadId + UPLOAD_FILE_SUFFIX);
+    }
+
+    private void createShardDirectories(Path blobPath) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.DIRECTORY_CHECK)) {
+            createDirectory(blobPath.getParent());
+        }
+    }
+
+//    новая директория сохраняется в родительской, иначе после сбоя вместе с ней пропадет и блоб
+    private void createDirectory(Path path) throws IOException {
+        if (Files.isDirectory(path)) return;
+        createDirectory(path.toAbsolutePath().getParent());
+        try {
             Files.createDirectory(path);
+        } catch (FileAlreadyExistsException e) {
+            if (Files.isDirectory(path)) return;
+            throw e;
+        }
+        sync.syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    private void checkDirectory(String name) throws IOException {
+        try (final var recording = PhaseRecording.start(StoragePhase.DIRECTORY_CHECK)) {
+            final var path = Path.of(name);
+            if (Files.notExists(path) || !Files.isDirectory(path)) {
+                createDirectory(path);
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private record Signature(int offset, byte[] bytes) {
+
+        static Signature of(int offset, int... bytes) {
+            final var signature = new byte[bytes.length];
+            for (var i = 0; i < bytes.length; i++) {
+                signature[i] = (byte) bytes[i];
+            }
+            return new Signature(offset, signature);
         }
     }
 }
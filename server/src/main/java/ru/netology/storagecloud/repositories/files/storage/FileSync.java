@@ -0,0 +1,120 @@
+package ru.netology.storagecloud.repositories.files.storage;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.netology.storagecloud.metrics.PhaseRecording;
+import ru.netology.storagecloud.metrics.StorageMetrics;
+import ru.netology.storagecloud.metrics.StoragePhase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Data
+@Component
+public class FileSync {
+
+    private static final boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
+
+    private final Map<Path, DirectorySync> directories = new ConcurrentHashMap<>();
+
+    private final Mode mode;
+
+//    режим передается в конструктор, чтобы экземпляр без Spring не остался без сброса на диск
+    public FileSync(@Value("${storage.sync.mode:file}") Mode mode) {
+        this.mode = mode;
+    }
+
+//    содержимое файла сбрасывается в потоке запроса: сбросы разных файлов идут параллельно
+    public void syncFile(FileChannel channel) throws IOException {
+        if (this.mode == Mode.NONE) return;
+        try (final var recording = PhaseRecording.start(StoragePhase.DISK_SYNC)) {
+            channel.force(false);
+        }
+    }
+
+//    после переименования или создания файла сбрасывается директория, иначе запись о нем может пропасть при сбое
+    public void syncDirectory(Path directory) throws IOException {
+        switch (this.mode) {
+            case FILE -> {
+                try (final var recording = PhaseRecording.start(StoragePhase.DISK_SYNC)) {
+                    forceDirectory(directory);
+                }
+            }
+            case GROUP -> {
+                try (final var recording = PhaseRecording.start(StoragePhase.DISK_SYNC)) {
+                    this.directories.computeIfAbsent(directory.toAbsolutePath(), DirectorySync::new).sync();
+                }
+            }
+        }
+    }
+
+    protected void forceDirectory(Path directory) throws IOException {
+        StorageMetrics.DIRECTORY_SYNCS.increment();
+//        в windows директорию нельзя открыть как файл, записи директорий там сохраняет журнал ntfs
+        if (WINDOWS) return;
+        try (final var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public enum Mode {
+        NONE,
+        FILE,
+        GROUP
+    }
+
+//    запросы, пришедшие пока директория сбрасывалась, ждут и покрываются одним следующим сбросом
+    private final class DirectorySync {
+
+        private final Path directory;
+        private long requested;
+        private long completed;
+        private boolean running;
+
+        private DirectorySync(Path directory) {
+            this.directory = directory;
+        }
+
+        private void sync() throws IOException {
+            final long ticket;
+            synchronized (this) {
+                ticket = ++this.requested;
+            }
+            while (true) {
+                final long target;
+                synchronized (this) {
+                    while (this.running && this.completed < ticket) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                    }
+                    if (this.completed >= ticket) return;
+//                    сброс покрывает все запросы, пришедшие до его начала
+                    this.running = true;
+                    target = this.requested;
+                }
+                var forced = false;
+                try {
+                    forceDirectory(this.directory);
+                    forced = true;
+                } finally {
+                    synchronized (this) {
+                        this.running = false;
+//                        при ошибке ожидающие запросы повторят сброс сами
+                        if (forced) this.completed = target;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
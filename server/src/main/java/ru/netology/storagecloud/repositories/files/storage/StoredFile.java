@@ -0,0 +1,11 @@
+package ru.netology.storagecloud.repositories.files.storage;
+
+import java.nio.file.Path;
+
+//size - исходный размер содержимого, storedSize - размер файла на диске после сжатия
+public record StoredFile(Path path, long size, String hash, FileCodec codec, long storedSize) {
+
+    public StoredFile(Path path, long size, String hash) {
+        this(path, size, hash, FileCodec.NONE, size);
+    }
+}
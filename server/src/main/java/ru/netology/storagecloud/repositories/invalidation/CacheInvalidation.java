@@ -0,0 +1,11 @@
+package ru.netology.storagecloud.repositories.invalidation;
+
+import java.util.List;
+
+public record CacheInvalidation(String node, Cache cache, String username, List<String> fileNames) {
+
+    public enum Cache {
+        TOKEN,
+        FILE
+    }
+}
@@ -0,0 +1,104 @@
+package ru.netology.storagecloud.repositories.invalidation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+@Slf4j
+@Data
+@Component
+@ConditionalOnProperty(value = "storage.cache.notify", havingValue = "true", matchIfMissing = true)
+public class InvalidationListener {
+
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final InvalidationPublisher publisher;
+    private final TokenCache tokenCache;
+    private final FileCache fileCache;
+    private Thread listener;
+
+    @Value("${storage.cache.notify-reconnect:5s}")
+    private Duration reconnectDelay;
+
+    @PostConstruct
+    public void start() {
+        this.listener = new Thread(this::listen, "cache-invalidation");
+        this.listener.setDaemon(true);
+        this.listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.listener != null) this.listener.interrupt();
+    }
+
+    public void receive(String payload) {
+        final CacheInvalidation invalidation;
+        try {
+            invalidation = InvalidationPublisher.MAPPER.readValue(payload, CacheInvalidation.class);
+        } catch (JsonProcessingException e) {
+            return;
+        }
+//        свой экземпляр сбросил кеш при записи
+        if (this.publisher.getNode().equals(invalidation.node())) return;
+        final var fileNames = invalidation.fileNames().toArray(String[]::new);
+//        без имени пользователя кеш сбрасывается целиком
+        switch (invalidation.cache()) {
+            case TOKEN -> {
+                if (invalidation.username() == null) this.tokenCache.evictAll();
+                else this.tokenCache.evict(invalidation.username());
+            }
+            case FILE -> {
+                if (invalidation.username() == null) this.fileCache.evictAll();
+                else this.fileCache.evict(invalidation.username(), fileNames);
+            }
+        }
+    }
+
+//    соединение с подпиской занимает одно соединение пула на все время работы
+    private void listen() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (
+                    final var connection = this.dataSource.getConnection();
+                    final var statement = connection.createStatement()
+            ) {
+                statement.execute("listen " + InvalidationPublisher.CHANNEL);
+//                уведомления, отправленные без подписки, потеряны, поэтому кеши сбрасываются целиком
+                this.tokenCache.evictAll();
+                this.fileCache.evictAll();
+                final var pgConnection = connection.unwrap(PGConnection.class);
+                while (!Thread.currentThread().isInterrupted()) {
+                    final var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) continue;
+                    for (var notification : notifications) {
+//                        ошибка в одном уведомлении не должна останавливать подписку
+                        try {
+                            receive(notification.getParameter());
+                        } catch (RuntimeException e) {
+                            log.warn("Cache invalidation {} failed", notification.getParameter(), e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                try {
+                    Thread.sleep(this.reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
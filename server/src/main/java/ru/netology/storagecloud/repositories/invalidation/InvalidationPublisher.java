@@ -0,0 +1,43 @@
+package ru.netology.storagecloud.repositories.invalidation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Component
+public class InvalidationPublisher {
+
+    static final String CHANNEL = "storage_cache";
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String node = UUID.randomUUID().toString();
+
+    @Value("${storage.cache.notify:true}")
+    private boolean enabled;
+
+//    внутри транзакции postgres доставит уведомление только после коммита, при откате оно не уйдет
+    public void publish(CacheInvalidation.Cache cache, String username, String... fileNames) {
+        if (!this.enabled) return;
+        final String payload;
+        try {
+            payload = MAPPER.writeValueAsString(new CacheInvalidation(this.node, cache, username, List.of(fileNames)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.jdbcTemplate.execute("select pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) statement -> {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, payload);
+            return statement.execute();
+        });
+    }
+}
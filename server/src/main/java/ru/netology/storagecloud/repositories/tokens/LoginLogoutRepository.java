@@ -7,6 +7,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Repository;
 import ru.netology.storagecloud.models.auth.requests.Login;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
 import ru.netology.storagecloud.services.tokens.models.AuthToken;
 import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
 import ru.netology.storagecloud.repositories.tokens.util.TokenGenerator;
@@ -18,14 +19,17 @@ public class LoginLogoutRepository extends DaoAuthenticationProvider implements
 
     protected final TokenJpaRepository tokenJpaRepository;
     protected final TokenGenerator tokenGenerator;
+    protected final TokenCache tokenCache;
 
     public LoginLogoutRepository(
             TokenGenerator tokenGenerator,
             PasswordEncoder passwordEncoder,
             UserDetailsService userDetailsService,
-            TokenJpaRepository tokenJpaRepository) {
+            TokenJpaRepository tokenJpaRepository,
+            TokenCache tokenCache) {
         this.tokenJpaRepository = tokenJpaRepository;
         this.tokenGenerator = tokenGenerator;
+        this.tokenCache = tokenCache;
         this.setPasswordEncoder(passwordEncoder);
         this.setUserDetailsService(userDetailsService);
     }
@@ -54,6 +58,7 @@ public class LoginLogoutRepository extends DaoAuthenticationProvider implements
                 .isActive(true)
                 .build();
         this.tokenJpaRepository.save(tokenEntity);
+        this.tokenCache.invalidate(tokenEntity.getUsername());
         return token;
     }
 
@@ -61,6 +66,7 @@ public class LoginLogoutRepository extends DaoAuthenticationProvider implements
         if (tokenEntity != null) {
             tokenEntity.setActive(false);
             tokenJpaRepository.save(tokenEntity);
+            tokenCache.invalidate(tokenEntity.getUsername());
         }
         SecurityContextHolder.clearContext();
     }
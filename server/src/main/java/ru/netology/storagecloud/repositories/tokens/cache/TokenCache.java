@@ -0,0 +1,84 @@
+package ru.netology.storagecloud.repositories.tokens.cache;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.netology.storagecloud.repositories.invalidation.CacheInvalidation;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
+import ru.netology.storagecloud.repositories.tokens.entities.dao.TokenEntity;
+import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+@Component
+public class TokenCache {
+
+    private final TokenJpaRepository tokenJpaRepository;
+    private final InvalidationPublisher publisher;
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${security.token.cache.max-size:10000}")
+    private int maxSize;
+    @Value("${security.token.cache.ttl:5m}")
+    private Duration ttl;
+
+    public Optional<TokenEntity> findById(String username) {
+        final var now = System.currentTimeMillis();
+        final var cached = this.tokens.get(username);
+        if (cached != null) {
+            if (cached.expiresAt() >= now) return Optional.of(cached.token());
+            this.tokens.remove(username, cached);
+        }
+        final var generation = this.generation.get();
+        final var token = this.tokenJpaRepository.findById(username);
+        token.ifPresent(t -> put(username, t, generation, now));
+        return token;
+    }
+
+    public void invalidate(String username) {
+        evict(username);
+        this.publisher.publish(CacheInvalidation.Cache.TOKEN, username);
+    }
+
+    public void evict(String username) {
+        this.generation.incrementAndGet();
+        this.tokens.remove(username);
+    }
+
+    public void evictAll() {
+        this.generation.incrementAndGet();
+        this.tokens.clear();
+    }
+
+    private void put(String username, TokenEntity token, long generation, long now) {
+        final var expiresAt = Math.min(token.getExpiration(), now + this.ttl.toMillis());
+        if (expiresAt < now) return;
+        if (this.tokens.size() >= this.maxSize) evict(now);
+//        копия, чтобы изменения сущности вне кеша не попадали в проверку токена
+        final var cached = new CachedToken(
+                new TokenEntity(token.getUsername(), token.getToken(), token.getStart(), token.getExpiration(), token.isActive()),
+                expiresAt
+        );
+        this.tokens.put(username, cached);
+//        токен мог быть отозван, пока читалась база: такая запись не должна остаться в кеше
+        if (this.generation.get() != generation) this.tokens.remove(username, cached);
+    }
+
+    private void evict(long now) {
+        this.tokens.values().removeIf(cached -> cached.expiresAt() < now);
+        final var iterator = this.tokens.keySet().iterator();
+        while (this.tokens.size() >= this.maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record CachedToken(TokenEntity token, long expiresAt) {
+    }
+}
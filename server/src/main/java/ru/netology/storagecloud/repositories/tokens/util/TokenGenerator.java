@@ -35,6 +35,7 @@ public class TokenGenerator implements AuthTokenDecoder, SecurityTokenDecoder {
 
     private final DirectEncrypter encrypter;
     private final ImmutableSecret<SimpleSecurityContext> jweKeySource;
+    private final DefaultJWTProcessor<SimpleSecurityContext> jwtProcessor;
     @Value("${security.token.expiration: 1}")
     private int daysToExpiration;
 
@@ -45,6 +46,11 @@ public class TokenGenerator implements AuthTokenDecoder, SecurityTokenDecoder {
         }
         this.encrypter = new DirectEncrypter(bytes);
         this.jweKeySource = new ImmutableSecret<>(bytes);
+//        после настройки процессор потокобезопасен, поэтому создается один раз
+        this.jwtProcessor = new DefaultJWTProcessor<>();
+        this.jwtProcessor.setJWEKeySelector(
+                new JWEDecryptionKeySelector<>(JWE_ALGORITHM, ENCRYPTION_METHOD, this.jweKeySource)
+        );
     }
 
     public AuthToken generateToken(String username) {
@@ -86,11 +92,7 @@ public class TokenGenerator implements AuthTokenDecoder, SecurityTokenDecoder {
 
     private AuthTokenGenerated read(String string) {
         try {
-            final var jwtProcessor = new DefaultJWTProcessor<SimpleSecurityContext>();
-            final var jweKeySelector =
-                    new JWEDecryptionKeySelector<>(JWE_ALGORITHM, ENCRYPTION_METHOD, this.jweKeySource);
-            jwtProcessor.setJWEKeySelector(jweKeySelector);
-            JWTClaimsSet claims = jwtProcessor.process(string, null);
+            JWTClaimsSet claims = this.jwtProcessor.process(string, null);
             final var username = (String) claims.getClaim(USERNAME_CLAIM_KEY);
             final var start = (long) claims.getClaim(DATE_CLAIM_KEY);
             final var expiration = (long) claims.getClaim(EXPIRATION_CLAIM_KEY);
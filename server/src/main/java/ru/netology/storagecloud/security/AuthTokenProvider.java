@@ -7,7 +7,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import ru.netology.storagecloud.exceptions.UnauthorizedException;
 import ru.netology.storagecloud.models.errors.ErrorMessage;
-import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
+import ru.netology.storagecloud.services.tokens.models.AuthToken;
 import ru.netology.storagecloud.services.tokens.util.AuthTokenDecoder;
 
 import java.time.LocalDateTime;
@@ -16,11 +17,11 @@ import java.util.ArrayList;
 
 public class AuthTokenProvider implements AuthenticationProvider {
 
-    protected final TokenJpaRepository tokenJpaRepository;
+    protected final TokenCache tokenCache;
     protected AuthTokenDecoder tokenDecoder;
 
-    public AuthTokenProvider(TokenJpaRepository tokenJpaRepository, AuthTokenDecoder tokenDecoder) {
-        this.tokenJpaRepository = tokenJpaRepository;
+    public AuthTokenProvider(TokenCache tokenCache, AuthTokenDecoder tokenDecoder) {
+        this.tokenCache = tokenCache;
         this.tokenDecoder = tokenDecoder;
     }
 
@@ -29,8 +30,11 @@ public class AuthTokenProvider implements AuthenticationProvider {
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
         try {
             final var tokenString = authentication.getCredentials().toString();
-            final var token = tokenDecoder.readAuthToken(tokenString);
-            final var tokenEntity = tokenJpaRepository.findById(token.getUsername()).orElse(null);
+            final var token = authentication.getDetails() instanceof AuthToken decoded
+                    && decoded.getToken().equals(tokenString)
+                    ? decoded
+                    : tokenDecoder.readAuthToken(tokenString);
+            final var tokenEntity = tokenCache.findById(token.getUsername()).orElse(null);
             final var nowTime = LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
             if (
                     tokenEntity == null
@@ -7,10 +7,13 @@ import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.SneakyThrows;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import ru.netology.storagecloud.exceptions.UnauthorizedException;
 import ru.netology.storagecloud.models.errors.ErrorMessage;
 import ru.netology.storagecloud.security.models.AuthTokenEmpty;
@@ -24,13 +27,16 @@ public class UsernameLoginFilter extends UsernamePasswordAuthenticationFilter {
 
     private static final String TOKEN_HEADER_NAME = "auth-token";
     private static final String TOKEN_START_WITH = "Bearer ";
+    private static final String TOKEN_ATTRIBUTE_NAME = UsernameLoginFilter.class.getName() + ".TOKEN";
 
     private final SecurityTokenDecoder decoder;
-    private SecurityToken token;
+    @Setter
+    private RequestMatcher publicRequests = request -> false;
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
-        super.doFilter(request, response, chain);
+//        без токена и для открытых адресов аутентификация не выполняется и исключения не создаются
+        if (hasToken((HttpServletRequest) request)) super.doFilter(request, response, chain);
         chain.doFilter(request, response);
     }
 
@@ -52,10 +58,12 @@ public class UsernameLoginFilter extends UsernamePasswordAuthenticationFilter {
             if (!tokenHeader.startsWith(TOKEN_START_WITH))
                 throw new UnauthorizedException(ErrorMessage.UNAUTHORIZED_ERROR);
 
-            final var token = tokenHeader.split(" ")[1].trim();
-            this.token = decoder.readSecurityToken(token);
-            if (this.token == null) this.token = new AuthTokenEmpty();
-            return this.token.getUsername();
+            final var token = tokenHeader.substring(TOKEN_START_WITH.length()).trim();
+            var securityToken = decoder.readSecurityToken(token);
+            if (securityToken == null) securityToken = new AuthTokenEmpty();
+//            фильтр общий для всех запросов, поэтому токен хранится только в самом запросе
+            request.setAttribute(TOKEN_ATTRIBUTE_NAME, securityToken);
+            return securityToken.getUsername();
 
         } catch (Exception e) {
             throw new UnauthorizedException(ErrorMessage.UNAUTHORIZED_ERROR);
@@ -64,6 +72,21 @@ public class UsernameLoginFilter extends UsernamePasswordAuthenticationFilter {
 
     @Override
     protected String obtainPassword(HttpServletRequest request) {
-        return this.token.getToken();
+        final var token = request.getAttribute(TOKEN_ATTRIBUTE_NAME);
+        return token instanceof SecurityToken securityToken ? securityToken.getToken() : "";
+    }
+
+    @Override
+    protected void setDetails(HttpServletRequest request, UsernamePasswordAuthenticationToken authRequest) {
+//        расшифрованный токен передается провайдеру, чтобы не расшифровывать его повторно
+        authRequest.setDetails(request.getAttribute(TOKEN_ATTRIBUTE_NAME));
+    }
+
+    private boolean hasToken(HttpServletRequest request) {
+        final var tokenHeader = request.getHeader(TOKEN_HEADER_NAME);
+        return tokenHeader != null
+                && tokenHeader.length() > TOKEN_START_WITH.length()
+                && tokenHeader.startsWith(TOKEN_START_WITH)
+                && !publicRequests.matches(request);
     }
 }
@@ -3,6 +3,7 @@ package ru.netology.storagecloud.services.files;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import ru.netology.storagecloud.exceptions.InputDataException;
 import ru.netology.storagecloud.exceptions.InternalServerException;
@@ -19,9 +20,11 @@ public class FileService {
     private final FileRepository repository;
 
     public UserFilesListResponse getFileList(FilesListParams params) throws InternalServerException, InputDataException {
-        if (params.count() <= 0) throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        if (params.count() <= 0 || params.sort() == null) throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
         try {
             return repository.getFileList(params);
+        } catch (IllegalArgumentException e) {
+            throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
         } catch (Exception e) {
             throw new InternalServerException(ErrorMessage.ERROR_GETTING_FILE_LIST);
         }
@@ -55,7 +58,7 @@ public class FileService {
             repository.updateFileName(new UpdateFileNameParams(params.fileName(), newName.getFilename()));
         } catch (InputDataException e) {
             throw e;
-        } catch (JsonProcessingException | NullPointerException e) {
+        } catch (JsonProcessingException | NullPointerException | DataIntegrityViolationException e) {
             throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
         } catch (Exception e) {
             throw new InternalServerException(ErrorMessage.ERROR_UPLOAD_FILE);
@@ -72,7 +75,7 @@ public class FileService {
         }
     }
 
-    private void checkFileName(String fileName) throws InputDataException {
+    static void checkFileName(String fileName) throws InputDataException {
         if (fileName == null || fileName.isBlank())
             throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
         final var partsFileName = fileName.split("\\.");
@@ -0,0 +1,17 @@
+package ru.netology.storagecloud.services.files;
+
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.models.files.responses.UploadSessionResponse;
+
+import java.io.IOException;
+
+public interface UploadRepository {
+
+    UploadSessionResponse openUpload(OpenUploadParams params) throws IOException;
+
+    void uploadChunk(UploadChunkParams params) throws IOException;
+
+    void commitUpload(CommitUploadParams params) throws IOException;
+}
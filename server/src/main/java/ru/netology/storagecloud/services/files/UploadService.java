@@ -0,0 +1,63 @@
+package ru.netology.storagecloud.services.files;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ru.netology.storagecloud.exceptions.InputDataException;
+import ru.netology.storagecloud.exceptions.InternalServerException;
+import ru.netology.storagecloud.models.errors.ErrorMessage;
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.models.files.responses.UploadSessionResponse;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.util.NoSuchElementException;
+
+@RequiredArgsConstructor
+@Service
+public class UploadService {
+
+    private final UploadRepository repository;
+
+    @Value("${storage.upload.max-size:1TB}")
+    private DataSize maxSize = DataSize.ofTerabytes(1);
+
+    public UploadSessionResponse openUpload(OpenUploadParams params) throws InputDataException, InternalServerException {
+        FileService.checkFileName(params.fileName());
+        if (params.size() < 0 || params.size() > maxSize.toBytes())
+            throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        try {
+            return repository.openUpload(params);
+        } catch (FileAlreadyExistsException e) {
+            throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        } catch (Exception e) {
+            throw new InternalServerException(ErrorMessage.ERROR_UPLOAD_FILE);
+        }
+    }
+
+    public void uploadChunk(UploadChunkParams params) throws InputDataException, InternalServerException {
+        if (params.uploadId() == null || params.index() < 0 || params.content() == null)
+            throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        try {
+            repository.uploadChunk(params);
+        } catch (NoSuchElementException | IllegalArgumentException | DataIntegrityViolationException e) {
+            throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        } catch (Exception e) {
+            throw new InternalServerException(ErrorMessage.ERROR_UPLOAD_FILE);
+        }
+    }
+
+    public void commitUpload(CommitUploadParams params) throws InputDataException, InternalServerException {
+        if (params.uploadId() == null) throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        try {
+            repository.commitUpload(params);
+        } catch (NoSuchElementException | IllegalArgumentException | DataIntegrityViolationException e) {
+            throw new InputDataException(ErrorMessage.ERROR_INPUT_DATA);
+        } catch (Exception e) {
+            throw new InternalServerException(ErrorMessage.ERROR_UPLOAD_FILE);
+        }
+    }
+}
@@ -11,6 +11,8 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,14 +28,18 @@ import ru.netology.storagecloud.config.entities.UserProperties;
 import ru.netology.storagecloud.models.errors.ErrorMessage;
 import ru.netology.storagecloud.models.errors.ExceptionResponse;
 import ru.netology.storagecloud.models.files.requests.NewFileName;
-import ru.netology.storagecloud.models.files.responses.UserFileResponse;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
 import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
 import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileListItem;
 import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.repositories.files.storage.StoredFile;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
 import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
 import ru.netology.storagecloud.repositories.tokens.util.TokenGenerator;
 import ru.netology.storagecloud.repositories.tokens.entities.dao.TokenEntity;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -43,6 +49,7 @@ import java.util.stream.Stream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -129,6 +136,10 @@ class TestFileModule {
     @Autowired
     private TokenJpaRepository tokenJpaRepository;
     @Autowired
+    private TokenCache tokenCache;
+    @Autowired
+    private FileCache fileCache;
+    @Autowired
     private WebApplicationContext webApplicationContext;
     @Autowired
     private Filter springSecurityFilterChain;
@@ -179,6 +190,8 @@ class TestFileModule {
         }
         Assertions.assertNotNull(tokenEntity);
         tokenJpaRepository.save(tokenEntity);
+        tokenCache.invalidate(TEST_LOGIN);
+        fileCache.invalidateAll();
     }
 
     @AfterEach
@@ -189,6 +202,8 @@ class TestFileModule {
 
     @Test
     public void addFileSuccessTest() throws Exception {
+        Mockito.when(fileStorage.saveFile(Mockito.any(), Mockito.any()))
+                .thenReturn(new StoredFile(Path.of("temp"), FILE.getSize(), "hash"));
         mockMvc
                 .perform(
                         multipart(FILE_ENDPOINT)
@@ -222,11 +237,11 @@ class TestFileModule {
                                         .pathDirectory(pathDirectoryFileInServer)
                                         .fileName(FILE.getOriginalFilename())
                                         .username(TEST_LOGIN)
+                                        .hash("hash")
                                         .build())
                 );
         Mockito.when(fileStorage.readFile(pathDirectoryFileInServer, TEST_LOGIN, FILE.getOriginalFilename()))
-                .thenReturn(FILE.getBytes());
-        final var responseBody = mapper.writeValueAsString(new UserFileResponse("hash of file", FILE.getBytes()));
+                .thenReturn(new ByteArrayResource(FILE.getBytes()));
 
         mockMvc
                 .perform(
@@ -235,7 +250,34 @@ class TestFileModule {
                                 .queryParam(FILENAME_QUERY_PARAM, FILE.getOriginalFilename())
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(responseBody));
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"hash\""))
+                .andExpect(content().bytes(FILE.getBytes()));
+    }
+
+    @Test
+    public void getFileRangeTest() throws Exception {
+        Mockito.when(fileJpaRepository.findByFileNameAndUsername(FILE.getOriginalFilename(), TEST_LOGIN))
+                .thenReturn(
+                        Optional.of(
+                                FileEntity.builder()
+                                        .fileName(FILE.getOriginalFilename())
+                                        .username(TEST_LOGIN)
+                                        .build())
+                );
+        Mockito.when(fileStorage.readFile(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new ByteArrayResource(FILE.getBytes()));
+
+        mockMvc
+                .perform(
+                        get(FILE_ENDPOINT)
+                                .header(TOKEN_HEADER_NAME, token)
+                                .header(HttpHeaders.RANGE, "bytes=0-3")
+                                .queryParam(FILENAME_QUERY_PARAM, FILE.getOriginalFilename())
+                )
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/" + FILE.getSize()))
+                .andExpect(content().bytes("Test".getBytes()));
     }
 
     @Test
@@ -260,9 +302,10 @@ class TestFileModule {
         final var requestBuilder = get(LIST_ENDPOINT)
                 .queryParam(LIMIT_QUERY_PARAM, String.valueOf(limitParameter))
                 .header(TOKEN_HEADER_NAME, token);
-        final var listFileEntities = new ArrayList<FileEntity>();
+        final var listFileEntities = new ArrayList<FileListItem>();
         final var responseBody = mapper.writeValueAsString(listFileEntities);
-        Mockito.when(fileJpaRepository.getAllWithLimit(limitParameter, TEST_LOGIN)).thenReturn(listFileEntities);
+        final var pageLimit = limitParameter < Integer.MAX_VALUE ? limitParameter + 1 : limitParameter;
+        Mockito.when(fileJpaRepository.getPageById(TEST_LOGIN, 0, pageLimit)).thenReturn(listFileEntities);
 
         mockMvc.perform(requestBuilder).andExpect(status().isOk()).andExpect(content().json(responseBody));
     }
@@ -299,7 +342,7 @@ class TestFileModule {
             case JPA_DELETE_FILE_EXCEPTION ->
                     Mockito.doThrow(new RuntimeException()).when(fileJpaRepository).delete(Mockito.any());
             case JPA_GET_FILE_LIST_EXCEPTION ->
-                    Mockito.doThrow(new RuntimeException()).when(fileJpaRepository).getAllWithLimit(Mockito.anyInt(), Mockito.anyString());
+                    Mockito.doThrow(new RuntimeException()).when(fileJpaRepository).getPageById(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
         }
 
         mockMvc.perform(requestBuilder).andExpect(status().is(CODE_INTERNAL_SERVER_ERROR)).andExpect(content().json(body));
@@ -390,6 +433,7 @@ class TestFileModule {
                 final var notActiveTokenEntity = tokenJpaRepository.findById(TEST_LOGIN).orElseThrow();
                 notActiveTokenEntity.setActive(false);
                 tokenJpaRepository.save(notActiveTokenEntity);
+                tokenCache.invalidate(TEST_LOGIN);
                 requestBuilder.header(TOKEN_HEADER_NAME, token);
                 break;
             case TOKEN_REPLACED:
@@ -400,6 +444,7 @@ class TestFileModule {
                 final var replacedStartTimeToken = tokenJpaRepository.findById(TEST_LOGIN).orElseThrow();
                 replacedStartTimeToken.setStart(LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
                 tokenJpaRepository.save(replacedStartTimeToken);
+                tokenCache.invalidate(TEST_LOGIN);
                 requestBuilder.header(TOKEN_HEADER_NAME, token);
                 break;
             case TOKEN_EXPIRATION_TIME_REPLACED:
@@ -408,6 +453,7 @@ class TestFileModule {
                 final var expiration = LocalDateTime.from(start.plusDays(1));
                 replacedExpirationTimeToken.setExpiration(expiration.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
                 tokenJpaRepository.save(replacedExpirationTimeToken);
+                tokenCache.invalidate(TEST_LOGIN);
                 requestBuilder.header(TOKEN_HEADER_NAME, token);
                 break;
             case TOKEN_NULL_VALUE:
@@ -1,21 +1,42 @@
 package ru.netology.storagecloud.controllers;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 import ru.netology.storagecloud.exceptions.InputDataException;
 import ru.netology.storagecloud.exceptions.InternalServerException;
+import ru.netology.storagecloud.metrics.StorageMetrics;
 import ru.netology.storagecloud.models.files.params.*;
 import ru.netology.storagecloud.models.files.responses.FileDescription;
 import ru.netology.storagecloud.models.files.responses.UserFileResponse;
 import ru.netology.storagecloud.models.files.responses.UserFilesListResponse;
 import ru.netology.storagecloud.services.files.FileService;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Stream;
 
 public class TestFileController {
@@ -52,17 +73,27 @@ public class TestFileController {
                 List.of(
                         new FileDescription("file1", 1024),
                         new FileDescription("file2", 1024 * 1024)
-                )
+                ),
+                "cursor"
         );
         Mockito.when(service.getFileList(Mockito.any())).thenReturn(serviceResponse);
         final var controller = new FileController(service);
         final var limit = 2;
         final var argCaptor = ArgumentCaptor.forClass(FilesListParams.class);
-        final var controllerResponse = controller.getFileList(limit);
+        final var controllerResponse = controller.getFileList(limit, "name", "previous");
         Mockito.verify(service, Mockito.times(1)).getFileList(argCaptor.capture());
-        Assertions.assertEquals(controllerResponse, serviceResponse.files());
-        Assertions.assertEquals(FilesListParams.class, argCaptor.getValue().getClass());
-        Assertions.assertEquals(limit, argCaptor.getValue().count());
+        Assertions.assertEquals(serviceResponse.files(), controllerResponse.getBody());
+        Assertions.assertEquals("cursor", controllerResponse.getHeaders().getFirst(FileController.CURSOR_HEADER));
+        Assertions.assertEquals(new FilesListParams(limit, "name", "previous"), argCaptor.getValue());
+    }
+
+    @Test
+    public void getFileListLastPageMethodTest() throws InternalServerException, InputDataException {
+        final var service = Mockito.mock(FileService.class);
+        Mockito.when(service.getFileList(Mockito.any())).thenReturn(new UserFilesListResponse(List.of(), null));
+        final var controller = new FileController(service);
+        final var controllerResponse = controller.getFileList(2, "id", null);
+        Assertions.assertFalse(controllerResponse.getHeaders().containsKey(FileController.CURSOR_HEADER));
     }
 
     @ParameterizedTest
@@ -72,7 +103,7 @@ public class TestFileController {
         Mockito.when(service.getFileList(Mockito.any())).thenThrow(e);
         final var controller = new FileController(service);
         final var limit = 2;
-        Assertions.assertThrows(e.getClass(), () -> controller.getFileList(limit));
+        Assertions.assertThrows(e.getClass(), () -> controller.getFileList(limit, "id", null));
     }
 
     private static Stream<Arguments> parametersForGetFileListMethodExceptionsTest() {
@@ -84,18 +115,270 @@ public class TestFileController {
     }
 
     @Test
-    public void getFileMethodTest() throws InternalServerException, InputDataException {
+    public void getFileMethodTest() throws InternalServerException, InputDataException, IOException {
         final var service = Mockito.mock(FileService.class);
-        final var serviceResponse = new UserFileResponse("hash", new byte[10]);
+        final var serviceResponse = new UserFileResponse("hash", new ByteArrayResource(new byte[10]));
         Mockito.when(service.getFile(Mockito.any())).thenReturn(serviceResponse);
         final var controller = new FileController(service);
         final var fileName = "testFileName";
         final var argCaptor = ArgumentCaptor.forClass(GetFileParams.class);
-        final var controllerResponse = controller.getFile(fileName);
+        final var controllerResponse = controller.getFile(fileName, Mockito.mock(HttpServletRequest.class), Mockito.mock(HttpServletResponse.class));
         Mockito.verify(service, Mockito.times(1)).getFile(argCaptor.capture());
-        Assertions.assertEquals(controllerResponse, serviceResponse);
+        Assertions.assertEquals(HttpStatus.OK, controllerResponse.getStatusCode());
+        Assertions.assertEquals(new CountedResource(serviceResponse.file()), controllerResponse.getBody());
+        Assertions.assertEquals("\"hash\"", controllerResponse.getHeaders().getETag());
         Assertions.assertEquals(GetFileParams.class, argCaptor.getValue().getClass());
         Assertions.assertEquals(fileName, argCaptor.getValue().filename());
+//        байты учитываются при чтении для отправки, а не при формировании ответа
+        final var downloaded = StorageMetrics.DOWNLOADED_BYTES.count();
+        try (final var input = controllerResponse.getBody().getInputStream()) {
+            Assertions.assertEquals(downloaded, StorageMetrics.DOWNLOADED_BYTES.count());
+            input.readAllBytes();
+        }
+        Assertions.assertEquals(downloaded + 10, StorageMetrics.DOWNLOADED_BYTES.count());
+    }
+
+    @Test
+    public void getFileCompressedMethodTest() throws InternalServerException, InputDataException {
+        final var service = Mockito.mock(FileService.class);
+        final var decoded = new ByteArrayResource(new byte[100]);
+        final var encoded = new ByteArrayResource(new byte[10]);
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(new UserFileResponse("hash", decoded, encoded, "gzip"));
+        final var controller = new FileController(service);
+
+        final var acceptingRequest = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(acceptingRequest.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+                .thenReturn(Collections.enumeration(List.of("deflate, gzip;q=0.5")));
+        final var encodedResponse = controller.getFile("testFileName", acceptingRequest, Mockito.mock(HttpServletResponse.class));
+        Assertions.assertEquals(new CountedResource(encoded), encodedResponse.getBody());
+        Assertions.assertEquals("gzip", encodedResponse.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals("\"hash-gzip\"", encodedResponse.getHeaders().getETag());
+        Assertions.assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), encodedResponse.getHeaders().getVary());
+
+        final var refusingRequest = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(refusingRequest.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+                .thenReturn(Collections.enumeration(List.of("gzip;q=0, br")));
+        final var decodedResponse = controller.getFile("testFileName", refusingRequest, Mockito.mock(HttpServletResponse.class));
+        Assertions.assertEquals(new CountedResource(decoded), decodedResponse.getBody());
+        Assertions.assertNull(decodedResponse.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals("\"hash\"", decodedResponse.getHeaders().getETag());
+        Assertions.assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), decodedResponse.getHeaders().getVary());
+    }
+
+    @Test
+    public void getFileSendfileMethodTest() throws InternalServerException, InputDataException, IOException {
+        final var file = Files.createTempFile("test", ".file");
+        Files.write(file, new byte[10]);
+        final var service = Mockito.mock(FileService.class);
+        final var serviceResponse = new UserFileResponse("hash", new FileSystemResource(file));
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(serviceResponse);
+        final var request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(Boolean.TRUE);
+        final var controller = new FileController(service);
+        ReflectionTestUtils.setField(controller, "readMode", FileController.ReadMode.SENDFILE);
+        try {
+            final var controllerResponse = controller.getFile("testFileName", request, Mockito.mock(HttpServletResponse.class));
+            Assertions.assertEquals(HttpStatus.OK, controllerResponse.getStatusCode());
+            Assertions.assertNull(controllerResponse.getBody());
+            Assertions.assertEquals(10, controllerResponse.getHeaders().getContentLength());
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.filename", file.toFile().getAbsolutePath());
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.end", 10L);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getFileAsyncMethodTest() throws InternalServerException, InputDataException, IOException {
+        final var file = Files.createTempFile("test", ".file");
+        final var content = new byte[200 * 1024];
+        new Random().nextBytes(content);
+        Files.write(file, content);
+        final var service = Mockito.mock(FileService.class);
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(new UserFileResponse("hash", new FileSystemResource(file)));
+        final var written = new ByteArrayOutputStream();
+        final var output = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                writeListener.onWritePossible();
+            }
+
+            @Override
+            public void write(int b) {
+                written.write(b);
+            }
+        };
+        final var request = Mockito.mock(HttpServletRequest.class);
+        final var response = Mockito.mock(HttpServletResponse.class);
+        final var context = Mockito.mock(AsyncContext.class);
+        Mockito.when(request.isAsyncSupported()).thenReturn(true);
+        Mockito.when(request.startAsync(request, response)).thenReturn(context);
+        Mockito.when(context.getResponse()).thenReturn(response);
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+        final var controller = new FileController(service);
+        ReflectionTestUtils.setField(controller, "readMode", FileController.ReadMode.ASYNC);
+        ReflectionTestUtils.setField(controller, "asyncTimeout", Duration.ofMinutes(1));
+        final var downloaded = StorageMetrics.DOWNLOADED_BYTES.count();
+        try {
+            Assertions.assertNull(controller.getFile("testFileName", request, response));
+            Mockito.verify(context, Mockito.timeout(5000)).complete();
+            Assertions.assertEquals(downloaded + content.length, StorageMetrics.DOWNLOADED_BYTES.count());
+            Mockito.verify(response).setStatus(HttpStatus.OK.value());
+            Mockito.verify(response).setContentLengthLong(content.length);
+            Mockito.verify(response).addHeader(HttpHeaders.ETAG, "\"hash\"");
+            Assertions.assertArrayEquals(content, written.toByteArray());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getFileAsyncTimeoutMethodTest() throws InternalServerException, InputDataException, IOException {
+        final var file = Files.createTempFile("test", ".file");
+        Files.write(file, new byte[10]);
+        final var service = Mockito.mock(FileService.class);
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(new UserFileResponse("hash", new FileSystemResource(file)));
+//        клиент не принимает данные: контейнер не вызывает onWritePossible
+        final var output = Mockito.mock(ServletOutputStream.class);
+        final var request = Mockito.mock(HttpServletRequest.class);
+        final var response = Mockito.mock(HttpServletResponse.class);
+        final var context = Mockito.mock(AsyncContext.class);
+        Mockito.when(request.isAsyncSupported()).thenReturn(true);
+        Mockito.when(request.startAsync(request, response)).thenReturn(context);
+        Mockito.when(context.getResponse()).thenReturn(response);
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+        final var controller = new FileController(service);
+        ReflectionTestUtils.setField(controller, "readMode", FileController.ReadMode.ASYNC);
+        ReflectionTestUtils.setField(controller, "asyncTimeout", Duration.ofMinutes(1));
+        try {
+            Assertions.assertNull(controller.getFile("testFileName", request, response));
+            final var listener = ArgumentCaptor.forClass(AsyncListener.class);
+            Mockito.verify(context).addListener(listener.capture());
+            final var event = new AsyncEvent(context);
+            listener.getValue().onTimeout(event);
+            listener.getValue().onComplete(event);
+            ((WriteListener) listener.getValue()).onError(new IOException());
+            Mockito.verify(context, Mockito.times(1)).complete();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getFileAsyncCompletedMethodTest() throws InternalServerException, InputDataException, IOException {
+        final var file = Files.createTempFile("test", ".file");
+        Files.write(file, new byte[10]);
+        final var service = Mockito.mock(FileService.class);
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(new UserFileResponse("hash", new FileSystemResource(file)));
+        final var output = Mockito.mock(ServletOutputStream.class);
+        final var request = Mockito.mock(HttpServletRequest.class);
+        final var response = Mockito.mock(HttpServletResponse.class);
+        final var context = Mockito.mock(AsyncContext.class);
+        Mockito.when(request.isAsyncSupported()).thenReturn(true);
+        Mockito.when(request.startAsync(request, response)).thenReturn(context);
+        Mockito.when(context.getResponse()).thenReturn(response);
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+        final var controller = new FileController(service);
+        ReflectionTestUtils.setField(controller, "readMode", FileController.ReadMode.ASYNC);
+        ReflectionTestUtils.setField(controller, "asyncTimeout", Duration.ofMinutes(1));
+        try {
+            Assertions.assertNull(controller.getFile("testFileName", request, response));
+            final var listener = ArgumentCaptor.forClass(AsyncListener.class);
+            Mockito.verify(context).addListener(listener.capture());
+//            контейнер сам завершил запрос, отдача не должна завершать его повторно
+            listener.getValue().onComplete(new AsyncEvent(context));
+            ((WriteListener) listener.getValue()).onError(new IOException());
+            Mockito.verify(context, Mockito.never()).complete();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getFileSendfileRangeMethodTest() throws InternalServerException, InputDataException, IOException {
+        final var file = Files.createTempFile("test", ".file");
+        Files.write(file, new byte[10]);
+        final var service = Mockito.mock(FileService.class);
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(new UserFileResponse("hash", new FileSystemResource(file)));
+        final var request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(Boolean.TRUE);
+        Mockito.when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=2-5");
+        final var controller = new FileController(service);
+        ReflectionTestUtils.setField(controller, "readMode", FileController.ReadMode.SENDFILE);
+        try {
+            final var controllerResponse = controller.getFile("testFileName", request, Mockito.mock(HttpServletResponse.class));
+            Assertions.assertEquals(HttpStatus.PARTIAL_CONTENT, controllerResponse.getStatusCode());
+            Assertions.assertEquals(4, controllerResponse.getHeaders().getContentLength());
+            Assertions.assertEquals("bytes 2-5/10", controllerResponse.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.start", 2L);
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.end", 6L);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getFileSendfileLargeFileMethodTest() throws InternalServerException, InputDataException, IOException {
+        final var size = 5L * 1024 * 1024 * 1024;
+        final var file = Files.createTempFile("test", ".file");
+//        разреженный файл: место на диске не занимает
+        try (final var randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(size);
+        }
+        final var service = Mockito.mock(FileService.class);
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(new UserFileResponse("hash", new FileSystemResource(file)));
+        final var request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(Boolean.TRUE);
+        Mockito.when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=" + (size - 10) + "-");
+        final var controller = new FileController(service);
+        ReflectionTestUtils.setField(controller, "readMode", FileController.ReadMode.SENDFILE);
+        try {
+            final var controllerResponse = controller.getFile("testFileName", request, Mockito.mock(HttpServletResponse.class));
+            Assertions.assertEquals(HttpStatus.PARTIAL_CONTENT, controllerResponse.getStatusCode());
+            Assertions.assertEquals(10, controllerResponse.getHeaders().getContentLength());
+            Assertions.assertEquals(
+                    "bytes " + (size - 10) + "-" + (size - 1) + "/" + size,
+                    controllerResponse.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)
+            );
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.start", size - 10);
+            Mockito.verify(request).setAttribute("org.apache.tomcat.sendfile.end", size);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getFileIfRangeMismatchMethodTest() throws InternalServerException, InputDataException {
+        final var service = Mockito.mock(FileService.class);
+        final var serviceResponse = new UserFileResponse("hash", new ByteArrayResource(new byte[10]));
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(serviceResponse);
+        final var request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=2-5");
+        Mockito.when(request.getHeader(HttpHeaders.IF_RANGE)).thenReturn("\"outdated\"");
+        final var controller = new FileController(service);
+        final var controllerResponse = controller.getFile("testFileName", request, Mockito.mock(HttpServletResponse.class));
+        Assertions.assertEquals(HttpStatus.OK, controllerResponse.getStatusCode());
+        Assertions.assertEquals(10, controllerResponse.getHeaders().getContentLength());
+        Assertions.assertEquals(InputStreamResource.class, controllerResponse.getBody().getClass());
+    }
+
+    @Test
+    public void getFileIfRangeMatchMethodTest() throws InternalServerException, InputDataException {
+        final var service = Mockito.mock(FileService.class);
+        final var serviceResponse = new UserFileResponse("hash", new ByteArrayResource(new byte[10]));
+        Mockito.when(service.getFile(Mockito.any())).thenReturn(serviceResponse);
+        final var request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=2-5");
+        Mockito.when(request.getHeader(HttpHeaders.IF_RANGE)).thenReturn("\"hash\"");
+        final var controller = new FileController(service);
+        final var controllerResponse = controller.getFile("testFileName", request, Mockito.mock(HttpServletResponse.class));
+        Assertions.assertEquals(new CountedResource(serviceResponse.file()), controllerResponse.getBody());
     }
 
     @ParameterizedTest
@@ -105,7 +388,10 @@ public class TestFileController {
         Mockito.when(service.getFile(Mockito.any())).thenThrow(e);
         final var controller = new FileController(service);
         final var fileName = "testFileName";
-        Assertions.assertThrows(e.getClass(), () -> controller.getFile(fileName));
+        Assertions.assertThrows(
+                e.getClass(),
+                () -> controller.getFile(fileName, Mockito.mock(HttpServletRequest.class), Mockito.mock(HttpServletResponse.class))
+        );
     }
 
     private static Stream<Arguments> parametersForGetFileMethodExceptionsTest() {
@@ -0,0 +1,73 @@
+package ru.netology.storagecloud.controllers;
+
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import ru.netology.storagecloud.exceptions.InputDataException;
+import ru.netology.storagecloud.exceptions.InternalServerException;
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.models.files.responses.UploadSessionResponse;
+import ru.netology.storagecloud.services.files.UploadService;
+
+import java.io.ByteArrayInputStream;
+
+public class TestUploadController {
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running UploadControllerClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("UploadControllerClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void openUploadMethodTest() throws InputDataException, InternalServerException {
+        final var service = Mockito.mock(UploadService.class);
+        final var serviceResponse = new UploadSessionResponse("id", 8, 2);
+        Mockito.when(service.openUpload(Mockito.any())).thenReturn(serviceResponse);
+        final var controller = new UploadController(service);
+        final var argCaptor = ArgumentCaptor.forClass(OpenUploadParams.class);
+        Assertions.assertEquals(serviceResponse, controller.openUpload("file.txt", 16));
+        Mockito.verify(service, Mockito.times(1)).openUpload(argCaptor.capture());
+        Assertions.assertEquals(new OpenUploadParams("file.txt", 16), argCaptor.getValue());
+    }
+
+    @Test
+    public void uploadChunkMethodTest() throws InputDataException, InternalServerException {
+        final var service = Mockito.mock(UploadService.class);
+        final var controller = new UploadController(service);
+        final var content = new ByteArrayInputStream(new byte[8]);
+        final var argCaptor = ArgumentCaptor.forClass(UploadChunkParams.class);
+        controller.uploadChunk("id", 1, content);
+        Mockito.verify(service, Mockito.times(1)).uploadChunk(argCaptor.capture());
+        Assertions.assertEquals(new UploadChunkParams("id", 1, content), argCaptor.getValue());
+    }
+
+    @Test
+    public void commitUploadMethodTest() throws InputDataException, InternalServerException {
+        final var service = Mockito.mock(UploadService.class);
+        final var controller = new UploadController(service);
+        controller.commitUpload("id");
+        Mockito.verify(service, Mockito.times(1)).commitUpload(new CommitUploadParams("id"));
+    }
+}
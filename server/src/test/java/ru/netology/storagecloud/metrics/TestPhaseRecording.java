@@ -0,0 +1,64 @@
+package ru.netology.storagecloud.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+
+public class TestPhaseRecording {
+
+    private static long suiteStartTime;
+    private long testStartTime;
+    private SimpleMeterRegistry registry;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running PhaseRecordingClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("PhaseRecordingClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+        registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        PhaseRecording.setEnabled(false);
+        Metrics.removeRegistry(registry);
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void disabledRecordingTest() {
+        PhaseRecording.setEnabled(false);
+        final var first = PhaseRecording.start(StoragePhase.DISK_WRITE);
+        final var second = PhaseRecording.start(StoragePhase.DB_SAVE);
+        first.close();
+        second.close();
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(0, timerCount(StoragePhase.DISK_WRITE));
+    }
+
+    @Test
+    public void enabledRecordingTest() {
+        PhaseRecording.setEnabled(true);
+        try (final var recording = PhaseRecording.start(StoragePhase.METADATA_LOOKUP)) {
+            Assertions.assertNotNull(recording);
+        }
+        Assertions.assertEquals(1, timerCount(StoragePhase.METADATA_LOOKUP));
+        Assertions.assertEquals(0, timerCount(StoragePhase.DB_SAVE));
+    }
+
+    private long timerCount(StoragePhase phase) {
+        final var timer = registry.find("storage.phase").tag("phase", phase.name().toLowerCase()).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import ru.netology.storagecloud.repositories.files.BlobCollector;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobEntity;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
+import ru.netology.storagecloud.repositories.files.storage.BlobFile;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestBlobCollector {
+
+    private static final String PATH = "storage/";
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running BlobCollectorClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("BlobCollectorClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void collectMethodTest() throws IOException {
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var storage = Mockito.mock(FileStorage.class);
+        final var removed = BlobEntity.builder().hash("hash1").build();
+        final var failed = BlobEntity.builder().hash("hash2").shardDepth(2).build();
+        Mockito.when(blobs.lockUnreferenced(10)).thenReturn(List.of(removed, failed));
+        Mockito.doThrow(new IOException()).when(storage).deleteBlob(PATH, "hash2", 2);
+        final var collector = new BlobCollector(blobs, storage);
+        collector.setPath(PATH);
+        collector.setBatch(10);
+        collector.collect();
+        Mockito.verify(storage, Mockito.times(1)).deleteBlob(PATH, "hash1", 0);
+        Mockito.verify(blobs, Mockito.times(1)).delete(removed);
+        Mockito.verify(blobs, Mockito.times(0)).delete(failed);
+    }
+
+    @Test
+    public void sweepMethodTest() throws IOException {
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var storage = Mockito.mock(FileStorage.class);
+        final var known = new BlobFile("hash1", 2, 10);
+        final var orphan = new BlobFile("hash2", 2, 20);
+        Mockito.when(storage.findBlobs(Mockito.eq(PATH), Mockito.any())).thenReturn(Stream.of(known, orphan));
+        Mockito.when(blobs.findAllById(List.of("hash1", "hash2")))
+                .thenReturn(List.of(BlobEntity.builder().hash("hash1").shardDepth(2).build()));
+        final var collector = new BlobCollector(blobs, storage);
+        collector.setPath(PATH);
+        collector.setBatch(10);
+        collector.setSweepGrace(Duration.ofHours(1));
+        collector.sweep();
+        Mockito.verify(blobs, Mockito.times(1)).adopt("hash2", 2, 20);
+        Mockito.verify(blobs, Mockito.times(0)).adopt(Mockito.eq("hash1"), Mockito.anyInt(), Mockito.anyLong());
+    }
+}
@@ -0,0 +1,264 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.netology.storagecloud.models.files.params.UpdateFileNameParams;
+import ru.netology.storagecloud.repositories.files.BlobMigrator;
+import ru.netology.storagecloud.repositories.files.FileRepositoryImpl;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobLocation;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.OldLocationEntity;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.OldLocationJpaRepository;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.repositories.files.storage.StoredFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class TestBlobMigrator {
+
+    private static final String PATH = "storage/";
+    private static final String OLD_PATH = "old/";
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    private FileJpaRepository dataBase;
+    private BlobJpaRepository blobs;
+    private FileStorage storage;
+    private FileCache cache;
+    private List<OldLocationEntity> oldLocationRows;
+    private BlobMigrator migrator;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running BlobMigratorClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("BlobMigratorClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+        dataBase = Mockito.mock(FileJpaRepository.class);
+        blobs = Mockito.mock(BlobJpaRepository.class);
+        storage = Mockito.mock(FileStorage.class);
+        cache = Mockito.mock(FileCache.class);
+        final var transactions = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+        oldLocationRows = new ArrayList<>();
+        migrator = new BlobMigrator(dataBase, blobs, storage, transactions, cache, oldLocations());
+        migrator.setPath(PATH);
+        migrator.setShardDepth(2);
+        migrator.setBatch(10);
+        migrator.setGrace(Duration.ZERO);
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void migrateBlobsMethodTest() throws IOException {
+        final var moved = BlobEntity.builder().hash("hash1").shardDepth(0).build();
+        final var failed = BlobEntity.builder().hash("hash2").shardDepth(0).build();
+        Mockito.when(blobs.lockOtherShardDepth(2, 10)).thenReturn(List.of(moved, failed));
+        Mockito.doThrow(new IOException()).when(storage).linkBlob(PATH, "hash2", 0, 2);
+
+        migrator.migrate();
+        Assertions.assertEquals(2, moved.getShardDepth());
+        Assertions.assertEquals(0, failed.getShardDepth());
+        Mockito.verify(dataBase, Mockito.times(1)).updateShardDepth("hash1", 2);
+        Mockito.verify(dataBase, Mockito.times(0)).updateShardDepth("hash2", 2);
+        Mockito.verify(storage, Mockito.times(0)).deleteBlob(Mockito.any(), Mockito.any(), Mockito.anyInt());
+        Mockito.verify(cache, Mockito.times(1)).invalidateAll();
+
+        Mockito.when(blobs.lockOtherShardDepth(2, 10)).thenReturn(List.of());
+        migrator.migrate();
+        Mockito.verify(storage, Mockito.times(1)).deleteBlob(PATH, "hash1", 0);
+        Mockito.verify(storage, Mockito.times(0)).deleteBlob(PATH, "hash2", 0);
+    }
+
+    @Test
+    public void migrateFilesMethodTest() throws IOException {
+        final var file = FileEntity.builder()
+                .pathDirectory(OLD_PATH)
+                .username("testUser")
+                .fileName("file.txt")
+                .size(10)
+                .hash("oldHash")
+                .build();
+        Mockito.when(dataBase.lockWithoutBlob(10)).thenReturn(List.of(file));
+        Mockito.when(storage.hashFile(OLD_PATH, "testUser", "file.txt"))
+                .thenReturn(new StoredFile(Path.of(OLD_PATH, "testUser", "file.txt"), 10, "testHash"));
+//        такой блоб уже есть со старой глубиной
+        Mockito.when(blobs.acquire("testHash", 10, 2, "NONE", 10)).thenReturn(blobLocation(1, FileCodec.NONE, 10));
+
+        migrator.migrate();
+        Mockito.verify(storage, Mockito.times(1)).linkFileToBlob(OLD_PATH, "testUser", "file.txt", PATH, "testHash", 1);
+        Assertions.assertEquals(PATH, file.getPathDirectory());
+        Assertions.assertEquals("testHash", file.getHash());
+        Assertions.assertEquals("testHash", file.getBlob());
+        Assertions.assertEquals(1, file.getShardDepth());
+        Mockito.verify(storage, Mockito.times(0)).deleteFile(Mockito.any(), Mockito.any(), Mockito.any());
+
+        Mockito.when(dataBase.lockWithoutBlob(10)).thenReturn(List.of());
+        migrator.migrate();
+        Mockito.verify(storage, Mockito.times(1)).deleteFile(OLD_PATH, "testUser", "file.txt");
+    }
+
+    @Test
+    public void migrateFilesToCompressedBlobMethodTest() throws IOException {
+        final var file = FileEntity.builder().pathDirectory(OLD_PATH).username("testUser").fileName("file.txt").size(10).build();
+        Mockito.when(dataBase.lockWithoutBlob(10)).thenReturn(List.of(file));
+        Mockito.when(storage.hashFile(OLD_PATH, "testUser", "file.txt"))
+                .thenReturn(new StoredFile(Path.of(OLD_PATH, "testUser", "file.txt"), 10, "testHash"));
+//        такое же содержимое уже загружено и хранится сжатым
+        Mockito.when(blobs.acquire("testHash", 10, 2, "NONE", 10)).thenReturn(blobLocation(2, FileCodec.GZIP, 4));
+
+        migrator.migrate();
+        Mockito.verify(storage, Mockito.times(0))
+                .linkFileToBlob(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt());
+        Assertions.assertEquals("testHash", file.getBlob());
+        Assertions.assertEquals(FileCodec.GZIP, file.getCodec());
+        Assertions.assertEquals(4, file.getStoredSize());
+        Assertions.assertEquals(10, file.getSize());
+    }
+
+    @Test
+    public void migrateFilesWithStorageExceptionTest() throws IOException {
+        final var file = FileEntity.builder().pathDirectory(OLD_PATH).username("testUser").fileName("file.txt").size(10).build();
+        Mockito.when(dataBase.lockWithoutBlob(10)).thenReturn(List.of(file));
+        Mockito.when(storage.hashFile(OLD_PATH, "testUser", "file.txt"))
+                .thenReturn(new StoredFile(Path.of(OLD_PATH, "testUser", "file.txt"), 10, "testHash"));
+        Mockito.when(blobs.acquire("testHash", 10, 2, "NONE", 10)).thenReturn(blobLocation(2, FileCodec.NONE, 10));
+        Mockito.doThrow(new IOException()).when(storage)
+                .linkFileToBlob(OLD_PATH, "testUser", "file.txt", PATH, "testHash", 2);
+
+        migrator.migrate();
+        Mockito.verify(blobs, Mockito.times(1)).release("testHash");
+        Assertions.assertNull(file.getBlob());
+        Assertions.assertEquals(OLD_PATH, file.getPathDirectory());
+
+        migrator.migrate();
+        Mockito.verify(storage, Mockito.times(0)).deleteFile(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void renameDuringMigrationTest() throws IOException {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("testUser", ""));
+        final var row = FileEntity.builder()
+                .pathDirectory(PATH)
+                .username("testUser")
+                .fileName("file.txt")
+                .hash("hash1")
+                .blob("hash1")
+                .shardDepth(0)
+                .build();
+        final var blob = BlobEntity.builder().hash("hash1").shardDepth(0).build();
+        Mockito.when(blobs.lockOtherShardDepth(2, 10)).thenReturn(List.of(blob));
+        Mockito.doAnswer(invocation -> {
+            row.setShardDepth(invocation.getArgument(1));
+            return null;
+        }).when(dataBase).updateShardDepth("hash1", 2);
+//        блоб переносится, пока переименование идет: глубина, записанная мигратором, не должна затереться
+        Mockito.when(dataBase.updateFileName("testUser", "file.txt", "renamed.txt")).thenAnswer(invocation -> {
+            migrator.migrate();
+            row.setFileName(invocation.getArgument(2));
+            return 1;
+        });
+        Mockito.when(dataBase.findByFileNameAndUsername("renamed.txt", "testUser")).thenAnswer(invocation -> Optional.of(row));
+        try {
+            new FileRepositoryImpl(dataBase, blobs, storage, cache).updateFileName(new UpdateFileNameParams("file.txt", "renamed.txt"));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        Mockito.verify(storage, Mockito.times(1)).linkBlob(PATH, "hash1", 0, 2);
+        Mockito.verify(storage, Mockito.times(0)).updateFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        Assertions.assertEquals("renamed.txt", row.getFileName());
+        Assertions.assertEquals(2, row.getShardDepth());
+    }
+
+    @Test
+    public void removeOldLocationsAfterRestartTest() throws IOException {
+        final var moved = BlobEntity.builder().hash("hash1").shardDepth(0).build();
+        Mockito.when(blobs.lockOtherShardDepth(2, 10)).thenReturn(List.of(moved));
+        migrator.migrate();
+        Assertions.assertEquals(1, oldLocationRows.size());
+
+//        новый экземпляр мигратора, как после перезапуска сервера, находит старый путь в базе
+        Mockito.when(blobs.lockOtherShardDepth(2, 10)).thenReturn(List.of());
+        Mockito.when(blobs.findById("hash1")).thenReturn(Optional.of(moved));
+        final var transactions = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+        final var restarted = new BlobMigrator(dataBase, blobs, storage, transactions, cache, oldLocations());
+        restarted.setPath(PATH);
+        restarted.setShardDepth(2);
+        restarted.setBatch(10);
+        restarted.setGrace(Duration.ZERO);
+        restarted.migrate();
+        Mockito.verify(storage, Mockito.times(1)).deleteBlob(PATH, "hash1", 0);
+        Assertions.assertTrue(oldLocationRows.isEmpty());
+    }
+
+    @Test
+    public void keepCurrentLocationTest() throws IOException {
+//        глубина вернулась к 0 раньше, чем был удален старый путь
+        oldLocationRows.add(OldLocationEntity.builder().hash("hash1").shardDepth(0).build());
+        Mockito.when(blobs.findById("hash1")).thenReturn(Optional.of(BlobEntity.builder().hash("hash1").shardDepth(0).build()));
+        migrator.migrate();
+        Mockito.verify(storage, Mockito.times(0)).deleteBlob(Mockito.any(), Mockito.any(), Mockito.anyInt());
+        Assertions.assertTrue(oldLocationRows.isEmpty());
+    }
+
+    @Test
+    public void removeOldLocationsGraceTest() {
+        migrator.setGrace(Duration.ofMinutes(1));
+        final var before = System.currentTimeMillis();
+        migrator.migrate();
+        final var movedBefore = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(migrator.getOldLocations()).findMovedBefore(movedBefore.capture(), Mockito.eq(10));
+        Assertions.assertTrue(movedBefore.getValue() <= System.currentTimeMillis() - Duration.ofMinutes(1).toMillis());
+        Assertions.assertTrue(movedBefore.getValue() >= before - Duration.ofMinutes(1).toMillis());
+    }
+
+//    строки старых путей хранятся в списке вместо таблицы old_locations
+    private OldLocationJpaRepository oldLocations() {
+        final var oldLocations = Mockito.mock(OldLocationJpaRepository.class);
+        Mockito.when(oldLocations.save(Mockito.any())).thenAnswer(invocation -> {
+            oldLocationRows.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        Mockito.when(oldLocations.findMovedBefore(Mockito.anyLong(), Mockito.anyInt()))
+                .thenAnswer(invocation -> List.copyOf(oldLocationRows));
+        Mockito.doAnswer(invocation -> oldLocationRows.remove((OldLocationEntity) invocation.getArgument(0)))
+                .when(oldLocations).delete(Mockito.any());
+        return oldLocations;
+    }
+
+    private static BlobLocation blobLocation(int shardDepth, FileCodec codec, long storedSize) {
+        final var blob = Mockito.mock(BlobLocation.class);
+        Mockito.when(blob.getShardDepth()).thenReturn(shardDepth);
+        Mockito.when(blob.getCodec()).thenReturn(codec);
+        Mockito.when(blob.getStoredSize()).thenReturn(storedSize);
+        return blob;
+    }
+}
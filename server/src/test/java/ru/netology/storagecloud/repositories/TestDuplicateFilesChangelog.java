@@ -0,0 +1,105 @@
+package ru.netology.storagecloud.repositories;
+
+import liquibase.Liquibase;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.*;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+@Testcontainers
+public class TestDuplicateFilesChangelog {
+
+    private static final String CHANGELOG = "db/changelog/db.changelog-master.yaml";
+//    число наборов изменений до удаления дубликатов (1791849600000-7)
+    private static final int CHANGES_BEFORE_CLEANUP = 11;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres");
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running DuplicateFilesChangelogClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("DuplicateFilesChangelogClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void duplicateCleanupTest() throws SQLException, LiquibaseException {
+        final var dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(POSTGRES.getJdbcUrl());
+        dataSource.setUser(POSTGRES.getUsername());
+        dataSource.setPassword(POSTGRES.getPassword());
+        final var jdbc = new JdbcTemplate(dataSource);
+        try (final var connection = dataSource.getConnection()) {
+            final var database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            final var liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database);
+            liquibase.update(CHANGES_BEFORE_CLEANUP, "");
+            jdbc.update("insert into blobs (hash, size, ref_count) values ('hash', 1, 7)");
+//            старые строки без блоба указывают на один файл
+            insert(jdbc, 1, "userA", "doc.txt", null);
+            insert(jdbc, 2, "userA", "doc.txt", null);
+//            имя photo-3.jpg уже занято
+            insert(jdbc, 3, "userA", "photo.jpg", "hash");
+            insert(jdbc, 4, "userA", "photo.jpg", "hash");
+            insert(jdbc, 5, "userA", "photo-3.jpg", "hash");
+//            строка без блоба сохраняет имя: по нему строится путь к файлу
+            insert(jdbc, 6, "userA", "mixed.txt", null);
+            insert(jdbc, 7, "userA", "mixed.txt", "hash");
+            insert(jdbc, 8, "userA", "README", "hash");
+            insert(jdbc, 9, "userA", "README", "hash");
+            insert(jdbc, 10, "userB", "doc.txt", "hash");
+            liquibase.update("");
+        }
+        final var names = new HashMap<Integer, String>();
+        for (var row : jdbc.queryForList("select id, file_name from files")) {
+            names.put((Integer) row.get("id"), (String) row.get("file_name"));
+        }
+        Assertions.assertEquals(Map.of(
+                2, "doc.txt",
+                3, "photo-3-1.jpg",
+                4, "photo.jpg",
+                5, "photo-3.jpg",
+                6, "mixed.txt",
+                7, "mixed-7.txt",
+                8, "README-8",
+                9, "README",
+                10, "doc.txt"
+        ), names);
+    }
+
+    private static void insert(JdbcTemplate jdbc, int id, String username, String fileName, String blob) {
+        jdbc.update(
+                "insert into files (id, file_name, path_directory, size, username, blob) values (?, ?, 'storage/', 1, ?, ?)",
+                id, fileName, username, blob
+        );
+    }
+}
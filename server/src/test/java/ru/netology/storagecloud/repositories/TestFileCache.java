@@ -0,0 +1,149 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileListItem;
+import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.pages.PageCursor;
+import ru.netology.storagecloud.repositories.invalidation.CacheInvalidation;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestFileCache {
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    private FileJpaRepository jpaRepository;
+    private InvalidationPublisher publisher;
+    private FileCache fileCache;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running FileCacheClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("FileCacheClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+        jpaRepository = Mockito.mock(FileJpaRepository.class);
+        publisher = Mockito.mock(InvalidationPublisher.class);
+        fileCache = new FileCache(jpaRepository, publisher);
+        fileCache.setMaxSize(2);
+        fileCache.setTtl(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void findCachedMethodTest() {
+        final var fileEntity = fileEntity("user1", "file.txt");
+        Mockito.when(jpaRepository.findByFileNameAndUsername("file.txt", "user1")).thenReturn(Optional.of(fileEntity));
+        fileCache.findByFileNameAndUsername("file.txt", "user1");
+//        изменение полученной сущности не попадает в кеш
+        fileCache.findByFileNameAndUsername("file.txt", "user1").orElseThrow().setFileName("changed.txt");
+        Assertions.assertEquals("file.txt", fileCache.findByFileNameAndUsername("file.txt", "user1").orElseThrow().getFileName());
+        Mockito.verify(jpaRepository, Mockito.times(1)).findByFileNameAndUsername("file.txt", "user1");
+    }
+
+    @Test
+    public void missingFileNotCachedMethodTest() {
+        Mockito.when(jpaRepository.findByFileNameAndUsername("file.txt", "user1")).thenReturn(Optional.empty());
+        Assertions.assertTrue(fileCache.findByFileNameAndUsername("file.txt", "user1").isEmpty());
+        Assertions.assertTrue(fileCache.findByFileNameAndUsername("file.txt", "user1").isEmpty());
+        Mockito.verify(jpaRepository, Mockito.times(2)).findByFileNameAndUsername("file.txt", "user1");
+    }
+
+    @Test
+    public void pageCachedMethodTest() {
+        final var loads = new AtomicInteger();
+        final var cursor = PageCursor.first("id");
+        final List<FileListItem> page = List.of(fileEntity("user1", "file.txt"));
+        fileCache.page("user1", cursor, 3, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        final var cached = fileCache.page("user1", cursor, 3, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals("file.txt", cached.get(0).getFileName());
+        fileCache.invalidate("user1", "file.txt");
+        fileCache.page("user1", cursor, 3, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void invalidateAfterCommitMethodTest() {
+        final var fileEntity = fileEntity("user1", "file.txt");
+        Mockito.when(jpaRepository.findByFileNameAndUsername("file.txt", "user1")).thenReturn(Optional.of(fileEntity));
+        fileCache.findByFileNameAndUsername("file.txt", "user1");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            fileCache.invalidate("user1", "file.txt");
+            Assertions.assertFalse(fileCache.getFiles().isEmpty());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            Assertions.assertTrue(fileCache.getFiles().isEmpty());
+            Mockito.verify(publisher, Mockito.times(1)).publish(CacheInvalidation.Cache.FILE, "user1", "file.txt");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void invalidateDuringLoadMethodTest() {
+//        строка изменена, пока читалась база: устаревшая запись не остается в кеше
+        Mockito.when(jpaRepository.findByFileNameAndUsername("file.txt", "user1")).thenAnswer(invocation -> {
+            fileCache.invalidate("user1", "file.txt");
+            return Optional.of(fileEntity("user1", "file.txt"));
+        });
+        fileCache.findByFileNameAndUsername("file.txt", "user1");
+        Assertions.assertTrue(fileCache.getFiles().isEmpty());
+    }
+
+    @Test
+    public void maxSizeMethodTest() {
+        for (var i = 0; i < 5; i++) {
+            final var fileName = "file" + i + ".txt";
+            Mockito.when(jpaRepository.findByFileNameAndUsername(fileName, "user1"))
+                    .thenReturn(Optional.of(fileEntity("user1", fileName)));
+            fileCache.findByFileNameAndUsername(fileName, "user1");
+        }
+        Assertions.assertTrue(fileCache.getFiles().size() <= 2);
+    }
+
+    private static FileEntity fileEntity(String username, String fileName) {
+        return FileEntity.builder()
+                .id(1)
+                .username(username)
+                .fileName(fileName)
+                .pathDirectory("storage/")
+                .size(10)
+                .hash("hash")
+                .blob("hash")
+                .build();
+    }
+}
@@ -4,19 +4,31 @@ import org.junit.jupiter.api.*;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import ru.netology.storagecloud.models.files.params.*;
 import ru.netology.storagecloud.models.files.responses.FileDescription;
 import ru.netology.storagecloud.models.files.responses.UserFileResponse;
 import ru.netology.storagecloud.models.files.responses.UserFilesListResponse;
 import ru.netology.storagecloud.repositories.files.FileRepositoryImpl;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
 import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobLocation;
 import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
 import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.repositories.files.storage.StoredFile;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -57,39 +69,93 @@ public class TestFileRepositoryImpl {
         final var storage = Mockito.mock(FileStorage.class);
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var limit = 2;
         final var files = List.of(
                 new FileDescription("file1", 1024),
                 new FileDescription("file2", 1024 * 1024)
         );
-        final var params = new FilesListParams(limit);
-        Mockito.when(dataBase.getAllWithLimit(limit, username)).thenReturn(
+        final var params = new FilesListParams(limit, "id", null);
+        Mockito.when(dataBase.getPageById(username, 0, limit + 1)).thenReturn(
                 List.of(
                         FileEntity.builder().fileName(files.get(0).fileName()).username(username).size(files.get(0).size()).build(),
                         FileEntity.builder().fileName(files.get(1).fileName()).username(username).size(files.get(1).size()).build()
                 )
         );
-        final var response = new UserFilesListResponse(files);
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var response = new UserFilesListResponse(files, null);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         final var result = repository.getFileList(params);
-        Mockito.verify(dataBase, Mockito.times(1)).getAllWithLimit(limit, username);
+        Mockito.verify(dataBase, Mockito.times(1)).getPageById(username, 0, limit + 1);
         Assertions.assertEquals(response, result);
     }
 
+    @Test
+    public void getFileListNextPageMethodTest() {
+        final var storage = Mockito.mock(FileStorage.class);
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        Mockito.when(dataBase.getPageByName(username, "", 2)).thenReturn(
+                List.of(
+                        FileEntity.builder().id(7).fileName("a:b.txt").username(username).size(10).build(),
+                        FileEntity.builder().id(3).fileName("c.txt").username(username).size(20).build()
+                )
+        );
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        final var firstPage = repository.getFileList(new FilesListParams(1, "name", null));
+        Assertions.assertEquals(List.of(new FileDescription("a:b.txt", 10)), firstPage.files());
+        Assertions.assertNotNull(firstPage.cursor());
+        repository.getFileList(new FilesListParams(1, "name", firstPage.cursor()));
+        Mockito.verify(dataBase, Mockito.times(1)).getPageByName(username, "a:b.txt", 2);
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> repository.getFileList(new FilesListParams(1, "size", firstPage.cursor()))
+        );
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> repository.getFileList(new FilesListParams(1, "name", "invalid"))
+        );
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> repository.getFileList(new FilesListParams(1, "date", null))
+        );
+    }
+
+    @Test
+    public void getFileListBySizeLargeFileMethodTest() {
+        final var storage = Mockito.mock(FileStorage.class);
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var size = 5L * 1024 * 1024 * 1024;
+        Mockito.when(dataBase.getPageBySize(username, -1, 0, 2)).thenReturn(
+                List.of(
+                        FileEntity.builder().id(4).fileName("large.bin").username(username).size(size).build(),
+                        FileEntity.builder().id(5).fileName("larger.bin").username(username).size(size + 1).build()
+                )
+        );
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        final var firstPage = repository.getFileList(new FilesListParams(1, "size", null));
+        Assertions.assertEquals(List.of(new FileDescription("large.bin", size)), firstPage.files());
+        repository.getFileList(new FilesListParams(1, "size", firstPage.cursor()));
+        Mockito.verify(dataBase, Mockito.times(1)).getPageBySize(username, size, 4, 2);
+    }
+
     @Test
     public void getFileMethodTest() throws IOException {
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var params = new GetFileParams(fileName);
-        final var testFileBytes = new byte[0];
+        final var testFile = new ByteArrayResource(new byte[0]);
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(
-                FileEntity.builder().fileName(fileName).username(username).build()
+                FileEntity.builder().fileName(fileName).username(username).hash("testHash").build()
         ));
-        Mockito.when(storage.readFile(path, username, fileName)).thenReturn(testFileBytes);
-        final var response = new UserFileResponse("hash of file", testFileBytes);
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        Mockito.when(storage.readFile(path, username, fileName)).thenReturn(testFile);
+        final var response = new UserFileResponse("testHash", testFile);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         final var result = repository.getFile(params);
         Assertions.assertEquals(response, result);
     }
@@ -99,12 +165,13 @@ public class TestFileRepositoryImpl {
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var params = new GetFileParams(fileName);
-        final var testFileBytes = new byte[0];
+        final var testFile = new ByteArrayResource(new byte[0]);
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.empty());
-        Mockito.when(storage.readFile(path, username, fileName)).thenReturn(testFileBytes);
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        Mockito.when(storage.readFile(path, username, fileName)).thenReturn(testFile);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         Assertions.assertThrows(RuntimeException.class, () -> repository.getFile(params));
     }
 
@@ -113,11 +180,12 @@ public class TestFileRepositoryImpl {
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var params = new DeleteFileParams(fileName);
         final var fileEntity = FileEntity.builder().fileName(fileName).username(username).build();
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(fileEntity));
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         final var directoryCaptor = ArgumentCaptor.forClass(String.class);
         final var userCaptor = ArgumentCaptor.forClass(String.class);
         final var fileCaptor = ArgumentCaptor.forClass(String.class);
@@ -135,10 +203,11 @@ public class TestFileRepositoryImpl {
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var params = new DeleteFileParams(fileName);
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.empty());
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         Assertions.assertThrows(RuntimeException.class, () -> repository.deleteFile(params));
     }
 
@@ -146,12 +215,13 @@ public class TestFileRepositoryImpl {
     public void deleteFileWithStorageExceptionTest() throws IOException {
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var params = new DeleteFileParams(fileName);
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         Mockito.doThrow(new IOException()).when(storage).deleteFile(Mockito.any(), Mockito.any(), Mockito.any());
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(FileEntity.builder().build()));
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
 
         Assertions.assertThrows(IOException.class, () -> repository.deleteFile(params));
         Mockito.verify(dataBase, Mockito.times(0)).delete(Mockito.any(FileEntity.class));
@@ -162,26 +232,62 @@ public class TestFileRepositoryImpl {
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var newFileName = "newTestFileName";
         final var params = new UpdateFileNameParams(fileName, newFileName);
-        final var fileEntity = FileEntity.builder().fileName(fileName).username(username).build();
-        final var fileEntityExpected = FileEntity.builder().fileName(newFileName).username(username).build();
-        Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(fileEntity));
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var fileEntity = FileEntity.builder().fileName(newFileName).username(username).build();
+        Mockito.when(dataBase.updateFileName(username, fileName, newFileName)).thenReturn(1);
+        Mockito.when(dataBase.findByFileNameAndUsername(newFileName, username)).thenReturn(Optional.of(fileEntity));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         final var directoryCaptor = ArgumentCaptor.forClass(String.class);
         final var userCaptor = ArgumentCaptor.forClass(String.class);
         final var fileCaptor = ArgumentCaptor.forClass(String.class);
         final var newFileCaptor = ArgumentCaptor.forClass(String.class);
-        final var saveFileCaptor = ArgumentCaptor.forClass(FileEntity.class);
         repository.updateFileName(params);
         Mockito.verify(storage, Mockito.times(1))
                 .updateFile(directoryCaptor.capture(), userCaptor.capture(), fileCaptor.capture(), newFileCaptor.capture());
-        Mockito.verify(dataBase, Mockito.times(1)).save(saveFileCaptor.capture());
+        Mockito.verify(dataBase, Mockito.times(1)).updateFileName(username, fileName, newFileName);
+        Mockito.verify(dataBase, Mockito.times(0)).save(Mockito.any(FileEntity.class));
         Assertions.assertEquals(this.path, directoryCaptor.getValue());
         Assertions.assertEquals(username, userCaptor.getValue());
         Assertions.assertEquals(fileName, fileCaptor.getValue());
-        Assertions.assertEquals(fileEntityExpected, saveFileCaptor.getValue());
+    }
+
+    @Test
+    public void getCompressedFileMethodTest() throws IOException {
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var fileName = "testFileName";
+        final var content = "text ".repeat(100).getBytes();
+        final var compressed = new ByteArrayOutputStream();
+        try (final var output = FileCodec.GZIP.encode(compressed)) {
+            output.write(content);
+        }
+        final var testFile = new ByteArrayResource(compressed.toByteArray());
+        Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(
+                FileEntity.builder()
+                        .fileName(fileName)
+                        .username(username)
+                        .size(content.length)
+                        .hash("testHash")
+                        .blob("testHash")
+                        .shardDepth(1)
+                        .codec(FileCodec.GZIP)
+                        .storedSize(compressed.size())
+                        .build()
+        ));
+        Mockito.when(storage.readBlob(path, "testHash", 1)).thenReturn(testFile);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        final var response = repository.getFile(new GetFileParams(fileName));
+        Assertions.assertEquals(testFile, response.encodedFile());
+        Assertions.assertEquals("gzip", response.contentEncoding());
+        Assertions.assertEquals(content.length, response.file().contentLength());
+        try (final var input = response.file().getInputStream()) {
+            Assertions.assertArrayEquals(content, input.readAllBytes());
+        }
     }
 
     @Test
@@ -189,11 +295,12 @@ public class TestFileRepositoryImpl {
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var newFileName = "newTestFileName";
         final var params = new UpdateFileNameParams(fileName, newFileName);
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.empty());
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
         Assertions.assertThrows(RuntimeException.class, () -> repository.updateFileName(params));
     }
 
@@ -201,55 +308,234 @@ public class TestFileRepositoryImpl {
     public void updateFileWithStorageExceptionTest() throws IOException {
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var params = new UpdateFileNameParams(fileName, fileName);
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         Mockito.doThrow(new IOException()).when(storage).updateFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.when(dataBase.updateFileName(username, fileName, fileName)).thenReturn(1);
         Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(FileEntity.builder().build()));
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
 
+//        исключение откатывает уже измененную строку
         Assertions.assertThrows(IOException.class, () -> repository.updateFileName(params));
-        Mockito.verify(dataBase, Mockito.times(0)).save(Mockito.any(FileEntity.class));
+    }
+
+    @Test
+    public void updateFileRollbackTest() throws IOException {
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var fileName = "testFileName";
+        final var newFileName = "newTestFileName";
+        Mockito.when(dataBase.updateFileName(username, fileName, newFileName)).thenReturn(1);
+        Mockito.when(dataBase.findByFileNameAndUsername(newFileName, username))
+                .thenReturn(Optional.of(FileEntity.builder().pathDirectory(this.path).fileName(newFileName).username(username).build()));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+
+//        коммит не прошел: файл без блоба возвращается под старое имя
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            repository.updateFileName(new UpdateFileNameParams(fileName, newFileName));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        final var order = Mockito.inOrder(storage);
+        order.verify(storage).updateFile(this.path, username, fileName, newFileName);
+        order.verify(storage).updateFile(this.path, username, newFileName, fileName);
+    }
+
+    @Test
+    public void getBlobFileMethodTest() throws IOException {
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var fileName = "testFileName";
+        final var testFile = new ByteArrayResource(new byte[0]);
+        Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(
+                FileEntity.builder().fileName(fileName).username(username).hash("testHash").blob("testHash").shardDepth(1).build()
+        ));
+        Mockito.when(storage.readBlob(path, "testHash", 1)).thenReturn(testFile);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        Assertions.assertEquals(new UserFileResponse("testHash", testFile), repository.getFile(new GetFileParams(fileName)));
+        Mockito.verify(storage, Mockito.times(0)).readFile(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void getFileCachedMethodTest() throws IOException {
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var fileName = "testFileName";
+        final var fileEntity = FileEntity.builder().fileName(fileName).username(username).hash("testHash").blob("testHash").build();
+        Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(fileEntity));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        repository.getFile(new GetFileParams(fileName));
+        repository.getFile(new GetFileParams(fileName));
+        Mockito.verify(dataBase, Mockito.times(1)).findByFileNameAndUsername(fileName, username);
+//        удаление читает строку из базы и сбрасывает кеш
+        repository.deleteFile(new DeleteFileParams(fileName));
+        Mockito.verify(dataBase, Mockito.times(2)).findByFileNameAndUsername(fileName, username);
+        repository.getFile(new GetFileParams(fileName));
+        Mockito.verify(dataBase, Mockito.times(3)).findByFileNameAndUsername(fileName, username);
+    }
+
+    @Test
+    public void getFileListCachedMethodTest() throws IOException {
+        final var storage = Mockito.mock(FileStorage.class);
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        Mockito.when(dataBase.getPageById(username, 0, 3)).thenReturn(List.of());
+        Mockito.when(storage.saveFile(Mockito.any(), Mockito.any())).thenReturn(new StoredFile(Path.of("temp"), 1, "testHash"));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        repository.getFileList(new FilesListParams(2, "id", null));
+        repository.getFileList(new FilesListParams(2, "id", null));
+        Mockito.verify(dataBase, Mockito.times(1)).getPageById(username, 0, 3);
+        repository.addFile(new AddFileParams("testFileName", Mockito.mock(MultipartFile.class)));
+        repository.getFileList(new FilesListParams(2, "id", null));
+        Mockito.verify(dataBase, Mockito.times(2)).getPageById(username, 0, 3);
+    }
+
+    @Test
+    public void deleteBlobFileMethodTest() throws IOException {
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var fileName = "testFileName";
+        final var fileEntity = FileEntity.builder().fileName(fileName).username(username).blob("testHash").build();
+        Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(fileEntity));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        repository.deleteFile(new DeleteFileParams(fileName));
+        Mockito.verify(blobs, Mockito.times(1)).release("testHash");
+        Mockito.verify(dataBase, Mockito.times(1)).delete(fileEntity);
+        Mockito.verifyNoInteractions(storage);
+    }
+
+    @Test
+    public void updateBlobFileMethodTest() throws IOException {
+        final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var fileName = "testFileName";
+        final var newFileName = "newTestFileName";
+        final var fileEntity = FileEntity.builder().fileName(fileName).username(username).blob("testHash").build();
+        Mockito.when(dataBase.findByFileNameAndUsername(fileName, username)).thenReturn(Optional.of(fileEntity));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        final var saveFileCaptor = ArgumentCaptor.forClass(FileEntity.class);
+        repository.updateFileName(new UpdateFileNameParams(fileName, newFileName));
+        Mockito.verify(dataBase, Mockito.times(1)).save(saveFileCaptor.capture());
+        Assertions.assertEquals(newFileName, saveFileCaptor.getValue().getFileName());
+        Mockito.verifyNoInteractions(storage);
     }
 
     @Test
     public void addFileMethodTest() throws IOException {
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var username = SecurityContextHolder.getContext().getAuthentication().getName();
         final var fileName = "testFileName";
         final var multipartFile = Mockito.mock(MultipartFile.class);
-        final var fileBytes = new byte[100];
+        final var fileSize = 100;
         final var params = new AddFileParams(fileName, multipartFile);
-        Mockito.when(multipartFile.getBytes()).thenReturn(fileBytes);
+        final var storedFile = new StoredFile(Path.of("temp"), fileSize, "testHash");
+        Mockito.when(storage.saveFile(this.path, multipartFile)).thenReturn(storedFile);
+//        блоб уже существует со старой глубиной и остается на своем месте
+        Mockito.when(blobs.acquire("testHash", fileSize, 2, "NONE", fileSize)).thenReturn(blobLocation(1, FileCodec.NONE, fileSize));
         final var fileEntityExpected = FileEntity.builder()
                 .pathDirectory(this.path)
                 .username(username)
                 .fileName(fileName)
-                .size(fileBytes.length)
+                .size(fileSize)
+                .hash("testHash")
+                .blob("testHash")
+                .shardDepth(1)
+                .storedSize(fileSize)
                 .build();
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        repository.setShardDepth(2);
         final var fileEntityCaptor = ArgumentCaptor.forClass(FileEntity.class);
         repository.addFile(params);
-        Mockito.verify(storage, Mockito.times(1))
-                .saveFile(this.path, username, fileName, multipartFile);
+        Mockito.verify(blobs, Mockito.times(1)).acquire("testHash", fileSize, 2, "NONE", fileSize);
         Mockito.verify(dataBase, Mockito.times(1)).save(fileEntityCaptor.capture());
+        Mockito.verify(storage, Mockito.times(1)).commitBlob(this.path, storedFile, 1);
         Assertions.assertEquals(fileEntityExpected, fileEntityCaptor.getValue());
     }
 
+    @Test
+    public void addFileExistingBlobOtherCodecMethodTest() throws IOException {
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var multipartFile = Mockito.mock(MultipartFile.class);
+        final var storedFile = new StoredFile(Path.of("temp"), 100, "testHash", FileCodec.GZIP, 20);
+        Mockito.when(storage.saveFile(this.path, multipartFile)).thenReturn(storedFile);
+//        то же содержимое сохранено без сжатия до включения настройки: остается старый блоб
+        Mockito.when(blobs.acquire("testHash", 100, 2, "GZIP", 20)).thenReturn(blobLocation(2, FileCodec.NONE, 100));
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+        repository.setShardDepth(2);
+        final var fileEntityCaptor = ArgumentCaptor.forClass(FileEntity.class);
+        repository.addFile(new AddFileParams("testFileName", multipartFile));
+        Mockito.verify(dataBase, Mockito.times(1)).save(fileEntityCaptor.capture());
+        Mockito.verify(storage, Mockito.times(1)).discardFile(storedFile);
+        Mockito.verify(storage, Mockito.times(0)).commitBlob(Mockito.any(), Mockito.any(), Mockito.anyInt());
+        Assertions.assertEquals(FileCodec.NONE, fileEntityCaptor.getValue().getCodec());
+        Assertions.assertEquals(100, fileEntityCaptor.getValue().getStoredSize());
+    }
+
     @Test
     public void addFileWithStorageExceptionTest() throws IOException {
         final var storage = Mockito.mock(FileStorage.class);
         final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
         final var fileName = "testFileName";
         final var multipartFile = Mockito.mock(MultipartFile.class);
-        final var fileBytes = new byte[0];
         final var params = new AddFileParams(fileName, multipartFile);
-        Mockito.when(multipartFile.getBytes()).thenReturn(fileBytes);
-        Mockito.doThrow(new IOException()).when(storage).saveFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
-        final var repository = new FileRepositoryImpl(dataBase, storage);
+        Mockito.doThrow(new IOException()).when(storage).saveFile(Mockito.any(), Mockito.any());
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
 
         Assertions.assertThrows(IOException.class, () -> repository.addFile(params));
         Mockito.verify(dataBase, Mockito.times(0)).save(Mockito.any(FileEntity.class));
+        Mockito.verifyNoInteractions(blobs);
+    }
+
+    @Test
+    public void addFileWithDatabaseExceptionTest() throws IOException {
+        final var storage = Mockito.mock(FileStorage.class);
+        final var dataBase = Mockito.mock(FileJpaRepository.class);
+        final var blobs = Mockito.mock(BlobJpaRepository.class);
+        final var multipartFile = Mockito.mock(MultipartFile.class);
+        final var storedFile = new StoredFile(Path.of("temp"), 100, "testHash");
+        Mockito.when(storage.saveFile(Mockito.any(), Mockito.any())).thenReturn(storedFile);
+        Mockito.doThrow(new RuntimeException()).when(blobs)
+                .acquire(Mockito.any(), Mockito.anyLong(), Mockito.anyInt(), Mockito.any(), Mockito.anyLong());
+        final var repository = new FileRepositoryImpl(dataBase, blobs, storage, fileCache(dataBase));
+
+        Assertions.assertThrows(RuntimeException.class, () -> repository.addFile(new AddFileParams("testFileName", multipartFile)));
+        Mockito.verify(storage, Mockito.times(1)).discardFile(storedFile);
+        Mockito.verify(storage, Mockito.times(0)).commitBlob(Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    private static FileCache fileCache(FileJpaRepository dataBase) {
+        final var fileCache = new FileCache(dataBase, Mockito.mock(InvalidationPublisher.class));
+        fileCache.setMaxSize(10);
+        fileCache.setTtl(Duration.ofMinutes(1));
+        return fileCache;
+    }
+
+    private static BlobLocation blobLocation(int shardDepth, FileCodec codec, long storedSize) {
+        final var blob = Mockito.mock(BlobLocation.class);
+        Mockito.when(blob.getShardDepth()).thenReturn(shardDepth);
+        Mockito.when(blob.getCodec()).thenReturn(codec);
+        Mockito.when(blob.getStoredSize()).thenReturn(storedSize);
+        return blob;
     }
 }
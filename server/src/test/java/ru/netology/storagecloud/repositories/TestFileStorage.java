@@ -0,0 +1,192 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import ru.netology.storagecloud.repositories.files.storage.BlobFile;
+import ru.netology.storagecloud.repositories.files.storage.DecodedResource;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.repositories.files.storage.FileSync;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class TestFileStorage {
+
+    private static final long LARGE_FILE_SIZE = 5L * 1024 * 1024 * 1024;
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    @TempDir
+    Path directory;
+
+    private FileStorage storage;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running FileStorageClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("FileStorageClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+        storage = new FileStorage(new FileSync(FileSync.Mode.FILE));
+        ReflectionTestUtils.setField(storage, "hashAlgorithm", "SHA-256");
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+//    хэширует 5 ГБ, запускается профилем large-tests
+    @Tag("large")
+    @Test
+    public void largeUploadFileTest() throws IOException {
+        final var path = directory + "/";
+//        файл загрузки создается разреженным, на диск пишется только последняя часть за границей 4 ГБ
+        storage.createUploadFile(path, "testUser", "upload", LARGE_FILE_SIZE);
+        final var written = storage.writeChunk(
+                path,
+                "testUser",
+                "upload",
+                LARGE_FILE_SIZE - 4,
+                4,
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4})
+        );
+        Assertions.assertEquals(4, written);
+        final var storedFile = storage.hashUploadFile(path, "testUser", "upload");
+        Assertions.assertEquals(LARGE_FILE_SIZE, storedFile.size());
+        storage.commitBlob(path, storedFile, 2);
+        final var blob = storage.readBlob(path, storedFile.hash(), 2);
+        Assertions.assertEquals(LARGE_FILE_SIZE, blob.contentLength());
+        try (final var input = blob.getInputStream()) {
+            input.skipNBytes(LARGE_FILE_SIZE - 4);
+            Assertions.assertArrayEquals(new byte[]{1, 2, 3, 4}, input.readAllBytes());
+        }
+    }
+
+    @Test
+    public void saveCompressedFileMethodTest() throws IOException {
+        final var path = directory + "/";
+        enableCompression();
+        final var content = "timestamp,level,message\n".repeat(1000).getBytes();
+        final var storedFile = storage.saveFile(path, new MockMultipartFile("file", content));
+        Assertions.assertEquals(FileCodec.GZIP, storedFile.codec());
+        Assertions.assertEquals(content.length, storedFile.size());
+        Assertions.assertTrue(storedFile.storedSize() < content.length / 5);
+        storage.commitBlob(path, storedFile, 2);
+        final var blob = new DecodedResource(storage.readBlob(path, storedFile.hash(), 2), storedFile.codec(), storedFile.size());
+        try (final var input = blob.getInputStream()) {
+            Assertions.assertArrayEquals(content, input.readAllBytes());
+        }
+    }
+
+    @Test
+    public void saveIncompressibleFileMethodTest() throws IOException {
+        final var path = directory + "/";
+        enableCompression();
+        final var random = new byte[64 * 1024];
+        new Random(1).nextBytes(random);
+        final var randomFile = storage.saveFile(path, new MockMultipartFile("file", random));
+        Assertions.assertEquals(FileCodec.NONE, randomFile.codec());
+        Assertions.assertEquals(random.length, randomFile.storedSize());
+//        по сигнатуре gzip файл считается уже сжатым и не сжимается повторно
+        final var gzip = new byte[64 * 1024];
+        gzip[0] = 0x1f;
+        gzip[1] = (byte) 0x8b;
+        final var gzipFile = storage.saveFile(path, new MockMultipartFile("file", gzip));
+        Assertions.assertEquals(FileCodec.NONE, gzipFile.codec());
+        Assertions.assertEquals(randomFile.size(), Files.size(randomFile.path()));
+    }
+
+    @Test
+    public void compressionSampleMethodTest() throws IOException {
+        final var path = directory + "/";
+        enableCompression();
+        final var random = new byte[64 * 1024];
+        new Random(1).nextBytes(random);
+//        по началу файла сжатие выгодно: остаток не проверяется и файл не перезаписывается
+        final var compressibleStart = new byte[256 * 1024];
+        System.arraycopy(random, 0, compressibleStart, compressibleStart.length - random.length, random.length);
+        final var compressedFile = storage.saveFile(path, new MockMultipartFile("file", compressibleStart));
+        Assertions.assertEquals(FileCodec.GZIP, compressedFile.codec());
+        Assertions.assertEquals(compressedFile.storedSize(), Files.size(compressedFile.path()));
+        try (final var input = FileCodec.GZIP.decode(Files.newInputStream(compressedFile.path()))) {
+            Assertions.assertArrayEquals(compressibleStart, input.readAllBytes());
+        }
+//        начало несжимаемо: файл пишется как есть, даже если дальше сжимается хорошо
+        final var randomStart = new byte[256 * 1024];
+        System.arraycopy(random, 0, randomStart, 0, random.length);
+        final var plainFile = storage.saveFile(path, new MockMultipartFile("file", randomStart));
+        Assertions.assertEquals(FileCodec.NONE, plainFile.codec());
+        Assertions.assertEquals(randomStart.length, Files.size(plainFile.path()));
+    }
+
+    @Test
+    public void deleteStaleFilesMethodTest() throws IOException {
+        final var path = directory + "/";
+        storage.createUploadFile(path, "testUser", "stale", 1);
+        storage.createUploadFile(path, "testUser", "active", 1);
+        final var stale = directory.resolve("testUser").resolve(".stale.upload");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        final var userFile = Files.writeString(directory.resolve("testUser").resolve("file.txt"), "content");
+        Files.setLastModifiedTime(userFile, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        storage.deleteStaleFiles(path, Instant.now().minus(Duration.ofDays(1)));
+        Assertions.assertTrue(Files.notExists(stale));
+        Assertions.assertTrue(Files.exists(directory.resolve("testUser").resolve(".active.upload")));
+        Assertions.assertTrue(Files.exists(userFile));
+    }
+
+    @Test
+    public void findBlobsMethodTest() throws IOException {
+        final var blobs = Files.createDirectories(directory.resolve(".blobs").resolve("ab").resolve("cd"));
+        Files.writeString(blobs.resolve("abcdef"), "content");
+        Files.writeString(directory.resolve(".blobs").resolve("123456"), "flat");
+        Files.writeString(directory.resolve(".blobs").resolve(".temp.tmp"), "temp");
+        try (final var found = storage.findBlobs(directory + "/", Instant.now().plus(Duration.ofMinutes(1)))) {
+            Assertions.assertEquals(
+                    Set.of(new BlobFile("abcdef", 2, 7), new BlobFile("123456", 0, 4)),
+                    found.collect(Collectors.toSet())
+            );
+        }
+//        ctime нельзя сдвинуть назад, поэтому только что созданные файлы моложе любого порога в прошлом
+        try (final var found = storage.findBlobs(directory + "/", Instant.now().minus(Duration.ofMinutes(1)))) {
+            Assertions.assertEquals(0, found.count());
+        }
+    }
+
+    @Test
+    public void checkHashAlgorithmMethodTest() {
+        storage.checkHashAlgorithm();
+        ReflectionTestUtils.setField(storage, "hashAlgorithm", "MD5");
+        Assertions.assertThrows(IllegalStateException.class, storage::checkHashAlgorithm);
+        ReflectionTestUtils.setField(storage, "hashAlgorithm", "SHA-1");
+        Assertions.assertThrows(IllegalStateException.class, storage::checkHashAlgorithm);
+    }
+
+    private void enableCompression() {
+        ReflectionTestUtils.setField(storage, "compression", true);
+        ReflectionTestUtils.setField(storage, "compressionMinSize", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(storage, "compressionMaxRatio", 0.9);
+    }
+}
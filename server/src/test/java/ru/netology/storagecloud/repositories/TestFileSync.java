@@ -0,0 +1,134 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import ru.netology.storagecloud.repositories.files.storage.FileSync;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestFileSync {
+
+    private static final int REQUESTS = 200;
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running FileSyncClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("FileSyncClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FileSync.Mode.class)
+    public void syncMethodTest(FileSync.Mode mode) throws IOException {
+        final var sync = new FileSync(mode);
+        try (final var channel = FileChannel.open(directory.resolve("file"), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            sync.syncFile(channel);
+        }
+        sync.syncDirectory(directory);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = FileSync.Mode.class, names = {"FILE", "GROUP"})
+    public void directorySyncBatchingTest(FileSync.Mode mode) throws Exception {
+        final var sync = new CountingSync(mode);
+        final var executor = Executors.newFixedThreadPool(16);
+        final var results = new ArrayList<Future<Void>>();
+        for (var i = 0; i < REQUESTS; i++) {
+            final var path = directory.resolve("file" + i);
+            final Callable<Void> task = () -> {
+                try (final var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+                    sync.syncFile(channel);
+                }
+                sync.syncDirectory(directory);
+                return null;
+            };
+            results.add(executor.submit(task));
+        }
+        for (var result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        if (mode == FileSync.Mode.FILE) {
+            Assertions.assertEquals(REQUESTS, sync.forces.get());
+        } else {
+//            пока одна директория сбрасывается, остальные 15 потоков ждут следующего общего сброса
+            Assertions.assertTrue(sync.forces.get() > 0);
+            Assertions.assertTrue(sync.forces.get() <= REQUESTS / 4, "forces: " + sync.forces.get());
+        }
+        Assertions.assertFalse(sync.overlapped.get());
+    }
+
+    @Test
+    public void groupSyncFailureTest() throws IOException {
+        final var sync = new CountingSync(FileSync.Mode.GROUP);
+        sync.failing.set(true);
+        Assertions.assertThrows(IOException.class, () -> sync.syncDirectory(directory));
+//        неудачный сброс не засчитывается, следующий запрос сбрасывает директорию заново
+        sync.failing.set(false);
+        sync.syncDirectory(directory);
+        Assertions.assertEquals(2, sync.forces.get());
+    }
+
+//    медленный сброс директории, как на диске с дорогим fsync
+    private static class CountingSync extends FileSync {
+
+        private final AtomicInteger forces = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicBoolean overlapped = new AtomicBoolean();
+        private final AtomicBoolean failing = new AtomicBoolean();
+
+        private CountingSync(Mode mode) {
+            super(mode);
+        }
+
+        @Override
+        protected void forceDirectory(Path directory) throws IOException {
+            forces.incrementAndGet();
+            if (getMode() == Mode.GROUP && running.incrementAndGet() > 1) overlapped.set(true);
+            try {
+                Thread.sleep(10);
+                if (failing.get()) throw new IOException("test");
+                super.forceDirectory(directory);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (getMode() == Mode.GROUP) running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.invalidation.CacheInvalidation;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationListener;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
+
+import java.time.Duration;
+
+@Testcontainers
+public class TestInvalidationListener {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres");
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    private Node first;
+    private Node second;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running InvalidationListenerClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("InvalidationListenerClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+//        два экземпляра сервера с общей базой
+        first = node();
+        second = node();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        first.listener().stop();
+        second.listener().stop();
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void fileInvalidationTest() {
+        Mockito.verify(second.fileCache(), Mockito.timeout(5000)).evictAll();
+        first.publisher().publish(CacheInvalidation.Cache.FILE, "testUser", "file.txt", "renamed.txt");
+        Mockito.verify(second.fileCache(), Mockito.timeout(5000)).evict("testUser", "file.txt", "renamed.txt");
+        Mockito.verify(first.fileCache(), Mockito.after(500).never()).evict(Mockito.any(), Mockito.any(String[].class));
+    }
+
+    @Test
+    public void tokenInvalidationTest() {
+        Mockito.verify(first.tokenCache(), Mockito.timeout(5000)).evictAll();
+        second.publisher().publish(CacheInvalidation.Cache.TOKEN, "testUser");
+        Mockito.verify(first.tokenCache(), Mockito.timeout(5000)).evict("testUser");
+        Mockito.verify(second.tokenCache(), Mockito.after(500).never()).evict(Mockito.any());
+    }
+
+    @Test
+    public void invalidateAllTest() {
+        Mockito.verify(second.fileCache(), Mockito.timeout(5000)).evictAll();
+        first.publisher().publish(CacheInvalidation.Cache.FILE, null);
+        Mockito.verify(second.fileCache(), Mockito.timeout(5000).times(2)).evictAll();
+    }
+
+    @Test
+    public void invalidPayloadTest() {
+        second.listener().receive("invalid");
+        second.listener().receive("{\"node\":\"" + second.publisher().getNode() + "\",\"cache\":\"TOKEN\",\"username\":\"testUser\",\"fileNames\":[]}");
+        Mockito.verify(second.tokenCache(), Mockito.never()).evict(Mockito.any());
+    }
+
+    @Test
+    public void malformedNotificationTest() {
+        Mockito.verify(second.fileCache(), Mockito.timeout(5000)).evictAll();
+//        разбирается как json, но без списка имен: обработка падает, а подписка должна продолжить работу
+        new JdbcTemplate(dataSource()).queryForList(
+                "select pg_notify('storage_cache', ?)",
+                "{\"node\":\"other\",\"cache\":\"FILE\",\"username\":\"testUser\"}"
+        );
+        first.publisher().publish(CacheInvalidation.Cache.FILE, "testUser", "file.txt");
+        Mockito.verify(second.fileCache(), Mockito.timeout(5000)).evict("testUser", "file.txt");
+    }
+
+    private static PGSimpleDataSource dataSource() {
+        final var dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(POSTGRES.getJdbcUrl());
+        dataSource.setUser(POSTGRES.getUsername());
+        dataSource.setPassword(POSTGRES.getPassword());
+        return dataSource;
+    }
+
+    private static Node node() {
+        final var dataSource = dataSource();
+        final var publisher = new InvalidationPublisher(new JdbcTemplate(dataSource));
+        publisher.setEnabled(true);
+        final var tokenCache = Mockito.mock(TokenCache.class);
+        final var fileCache = Mockito.mock(FileCache.class);
+        final var listener = new InvalidationListener(dataSource, publisher, tokenCache, fileCache);
+        listener.setReconnectDelay(Duration.ofMillis(100));
+        listener.start();
+        return new Node(publisher, listener, tokenCache, fileCache);
+    }
+
+    private record Node(
+            InvalidationPublisher publisher,
+            InvalidationListener listener,
+            TokenCache tokenCache,
+            FileCache fileCache
+    ) {
+    }
+}
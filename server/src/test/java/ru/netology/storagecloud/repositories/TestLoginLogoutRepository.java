@@ -8,6 +8,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import ru.netology.storagecloud.models.auth.requests.Login;
 import ru.netology.storagecloud.repositories.tokens.LoginLogoutRepository;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
 import ru.netology.storagecloud.repositories.tokens.entities.dao.TokenEntity;
 import ru.netology.storagecloud.repositories.tokens.entities.models.AuthTokenGenerated;
 import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
@@ -56,6 +57,7 @@ public class TestLoginLogoutRepository {
                 .token(password)
                 .build();
         final var jpaRepository = Mockito.mock(TokenJpaRepository.class);
+        final var tokenCache = Mockito.mock(TokenCache.class);
         final var generator = Mockito.mock(TokenGenerator.class);
         Mockito.when(generator.generateToken(username)).thenReturn(token);
         final var encoder = Mockito.mock(PasswordEncoder.class);
@@ -63,7 +65,7 @@ public class TestLoginLogoutRepository {
         final var userDetails = new User(username, password, new ArrayList<>());
         final var userDetailsService = Mockito.mock(UserDetailsService.class);
         Mockito.when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        final var repository = new LoginLogoutRepository(generator, encoder, userDetailsService, jpaRepository);
+        final var repository = new LoginLogoutRepository(generator, encoder, userDetailsService, jpaRepository, tokenCache);
         final var resultAuthToken = repository.generateToken(login);
         final var captor = ArgumentCaptor.forClass(TokenEntity.class);
         Mockito.verify(jpaRepository, Mockito.times(1)).save(captor.capture());
@@ -74,6 +76,7 @@ public class TestLoginLogoutRepository {
         Assertions.assertEquals(resultTokenEntity.getStart(), 0);
         Assertions.assertEquals(resultTokenEntity.getExpiration(), 0);
         Assertions.assertEquals(resultAuthToken, token.getToken());
+        Mockito.verify(tokenCache, Mockito.times(1)).invalidate(username);
     }
 
     @Test
@@ -82,15 +85,18 @@ public class TestLoginLogoutRepository {
         final var tokenEntity = Mockito.mock(TokenEntity.class);
         final var authToken = Mockito.mock(AuthToken.class);
         Mockito.when(authToken.getUsername()).thenReturn(username);
+        Mockito.when(tokenEntity.getUsername()).thenReturn(username);
         final var generator = Mockito.mock(TokenGenerator.class);
         final var encoder = Mockito.mock(PasswordEncoder.class);
         final var userDetailsService = Mockito.mock(UserDetailsService.class);
         final var jpaRepository = Mockito.mock(TokenJpaRepository.class);
+        final var tokenCache = Mockito.mock(TokenCache.class);
         Mockito.when(jpaRepository.findById(username)).thenReturn(Optional.of(tokenEntity));
-        final var repository = new LoginLogoutRepository(generator, encoder, userDetailsService, jpaRepository);
+        final var repository = new LoginLogoutRepository(generator, encoder, userDetailsService, jpaRepository, tokenCache);
 
         repository.logout(authToken);
         Mockito.verify(tokenEntity, Mockito.times(1)).setActive(false);
         Mockito.verify(jpaRepository, Mockito.times(1)).save(tokenEntity);
+        Mockito.verify(tokenCache, Mockito.times(1)).invalidate(username);
     }
 }
@@ -0,0 +1,109 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import ru.netology.storagecloud.repositories.invalidation.CacheInvalidation;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
+import ru.netology.storagecloud.repositories.tokens.entities.dao.TokenEntity;
+import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public class TestTokenCache {
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    private TokenJpaRepository jpaRepository;
+    private InvalidationPublisher publisher;
+    private TokenCache tokenCache;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running TokenCacheClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("TokenCacheClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+        jpaRepository = Mockito.mock(TokenJpaRepository.class);
+        publisher = Mockito.mock(InvalidationPublisher.class);
+        tokenCache = new TokenCache(jpaRepository, publisher);
+        tokenCache.setMaxSize(2);
+        tokenCache.setTtl(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void findByIdCachedMethodTest() {
+        final var tokenEntity = tokenEntity("user1", System.currentTimeMillis() + 60_000);
+        Mockito.when(jpaRepository.findById("user1")).thenReturn(Optional.of(tokenEntity));
+        Assertions.assertEquals("token", tokenCache.findById("user1").orElseThrow().getToken());
+        Assertions.assertEquals("token", tokenCache.findById("user1").orElseThrow().getToken());
+        Mockito.verify(jpaRepository, Mockito.times(1)).findById("user1");
+    }
+
+    @Test
+    public void invalidateMethodTest() {
+        final var tokenEntity = tokenEntity("user1", System.currentTimeMillis() + 60_000);
+        Mockito.when(jpaRepository.findById("user1")).thenReturn(Optional.of(tokenEntity));
+        tokenCache.findById("user1");
+        tokenEntity.setActive(false);
+        Assertions.assertTrue(tokenCache.findById("user1").orElseThrow().isActive());
+        tokenCache.invalidate("user1");
+        Assertions.assertFalse(tokenCache.findById("user1").orElseThrow().isActive());
+        Mockito.verify(jpaRepository, Mockito.times(2)).findById("user1");
+        Mockito.verify(publisher, Mockito.times(1)).publish(CacheInvalidation.Cache.TOKEN, "user1");
+    }
+
+    @Test
+    public void expiredTokenNotCachedMethodTest() {
+        final var tokenEntity = tokenEntity("user1", System.currentTimeMillis() - 1);
+        Mockito.when(jpaRepository.findById("user1")).thenReturn(Optional.of(tokenEntity));
+        tokenCache.findById("user1");
+        tokenCache.findById("user1");
+        Mockito.verify(jpaRepository, Mockito.times(2)).findById("user1");
+        Assertions.assertTrue(tokenCache.getTokens().isEmpty());
+    }
+
+    @Test
+    public void missingTokenNotCachedMethodTest() {
+        Mockito.when(jpaRepository.findById("user1")).thenReturn(Optional.empty());
+        Assertions.assertTrue(tokenCache.findById("user1").isEmpty());
+        Assertions.assertTrue(tokenCache.getTokens().isEmpty());
+    }
+
+    @Test
+    public void maxSizeMethodTest() {
+        final var expiration = System.currentTimeMillis() + 60_000;
+        for (var username : new String[]{"user1", "user2", "user3"}) {
+            Mockito.when(jpaRepository.findById(username)).thenReturn(Optional.of(tokenEntity(username, expiration)));
+            tokenCache.findById(username);
+        }
+        Assertions.assertEquals(2, tokenCache.getTokens().size());
+        Assertions.assertTrue(tokenCache.getTokens().containsKey("user3"));
+    }
+
+    private static TokenEntity tokenEntity(String username, long expiration) {
+        return TokenEntity.builder()
+                .username(username)
+                .token("token")
+                .start(0)
+                .expiration(expiration)
+                .isActive(true)
+                .build();
+    }
+}
@@ -0,0 +1,320 @@
+package ru.netology.storagecloud.repositories;
+
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.repositories.files.UploadRepositoryImpl;
+import ru.netology.storagecloud.repositories.files.cache.FileCache;
+import ru.netology.storagecloud.repositories.files.dao.entities.BlobLocation;
+import ru.netology.storagecloud.repositories.files.dao.entities.FileEntity;
+import ru.netology.storagecloud.repositories.files.dao.entities.UploadSessionEntity;
+import ru.netology.storagecloud.repositories.files.dao.jpa.BlobJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.FileJpaRepository;
+import ru.netology.storagecloud.repositories.files.dao.jpa.UploadSessionJpaRepository;
+import ru.netology.storagecloud.repositories.files.storage.FileCodec;
+import ru.netology.storagecloud.repositories.files.storage.FileStorage;
+import ru.netology.storagecloud.repositories.files.storage.StoredFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestUploadRepositoryImpl {
+
+    private static final String PATH = "storage/";
+    private static final String FILE_NAME = "testFile.txt";
+    private static final long CHUNK_SIZE = 4;
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    private FileStorage storage;
+    private FileJpaRepository dataBase;
+    private BlobJpaRepository blobs;
+    private FileCache cache;
+    private UploadSessionJpaRepository sessions;
+    private Map<String, UploadSessionEntity> sessionRows;
+    private Map<String, Set<Integer>> chunkRows;
+    private UploadRepositoryImpl repository;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running UploadRepositoryImplClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("UploadRepositoryImplClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() throws IOException {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("testUser", ""));
+        storage = Mockito.mock(FileStorage.class);
+        dataBase = Mockito.mock(FileJpaRepository.class);
+        blobs = Mockito.mock(BlobJpaRepository.class);
+        cache = Mockito.mock(FileCache.class);
+        Mockito
+                .when(storage.writeChunk(
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.anyLong(),
+                        Mockito.anyLong(),
+                        Mockito.any()
+                ))
+                .thenAnswer(invocation -> (long) invocation.getArgument(5, InputStream.class).readAllBytes().length);
+        sessions = sessions();
+        repository = repository();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void openUploadMethodTest() throws IOException {
+        final var result = repository.openUpload(new OpenUploadParams(FILE_NAME, 10));
+        Assertions.assertNotNull(result.uploadId());
+        Assertions.assertEquals(CHUNK_SIZE, result.chunkSize());
+        Assertions.assertEquals(3, result.chunks());
+        Mockito.verify(storage, Mockito.times(1)).createUploadFile(PATH, "testUser", result.uploadId(), 10);
+    }
+
+    @Test
+    public void uploadAndCommitMethodTest() throws IOException {
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 10));
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 2, new ByteArrayInputStream(new byte[2])));
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 0, new ByteArrayInputStream(new byte[4])));
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 1, new ByteArrayInputStream(new byte[4])));
+        Mockito.verify(storage).writeChunk(
+                Mockito.eq(PATH), Mockito.eq("testUser"), Mockito.eq(session.uploadId()),
+                Mockito.eq(8L), Mockito.eq(2L), Mockito.any()
+        );
+        final var storedFile = new StoredFile(Path.of("temp"), 10, "testHash");
+        Mockito.when(storage.hashUploadFile(PATH, "testUser", session.uploadId())).thenReturn(storedFile);
+        Mockito.when(blobs.acquire("testHash", 10, 2, "NONE", 10)).thenReturn(blobLocation(2, FileCodec.NONE, 10));
+        final var captor = ArgumentCaptor.forClass(FileEntity.class);
+        repository.commitUpload(new CommitUploadParams(session.uploadId()));
+        Mockito.verify(blobs, Mockito.times(1)).acquire("testHash", 10, 2, "NONE", 10);
+        Mockito.verify(storage, Mockito.times(1)).commitBlob(PATH, storedFile, 2);
+        Mockito.verify(dataBase, Mockito.times(1)).save(captor.capture());
+        Mockito.verify(cache, Mockito.times(1)).invalidate("testUser", FILE_NAME);
+        Assertions.assertEquals(
+                FileEntity.builder()
+                        .pathDirectory(PATH)
+                        .username("testUser")
+                        .fileName(FILE_NAME)
+                        .size(10)
+                        .hash("testHash")
+                        .blob("testHash")
+                        .shardDepth(2)
+                        .storedSize(10)
+                        .build(),
+                captor.getValue()
+        );
+        Assertions.assertTrue(sessionRows.isEmpty());
+        Assertions.assertTrue(chunkRows.isEmpty());
+    }
+
+    @Test
+    public void otherInstanceMethodTest() throws IOException {
+//        части и завершение загрузки приходят на разные экземпляры сервера с общей базой
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 8));
+        final var otherInstance = repository();
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 0, new ByteArrayInputStream(new byte[4])));
+        otherInstance.uploadChunk(new UploadChunkParams(session.uploadId(), 1, new ByteArrayInputStream(new byte[4])));
+        otherInstance.uploadChunk(new UploadChunkParams(session.uploadId(), 1, new ByteArrayInputStream(new byte[4])));
+        Assertions.assertEquals(2, sessions.countChunks(session.uploadId()));
+        final var storedFile = new StoredFile(Path.of("temp"), 8, "testHash");
+        Mockito.when(storage.hashUploadFile(PATH, "testUser", session.uploadId())).thenReturn(storedFile);
+        Mockito.when(blobs.acquire("testHash", 8, 2, "NONE", 8)).thenReturn(blobLocation(2, FileCodec.NONE, 8));
+        otherInstance.commitUpload(new CommitUploadParams(session.uploadId()));
+        Mockito.verify(storage, Mockito.times(1)).commitBlob(PATH, storedFile, 2);
+        Assertions.assertThrows(
+                NoSuchElementException.class,
+                () -> repository.commitUpload(new CommitUploadParams(session.uploadId()))
+        );
+    }
+
+    @Test
+    public void openUploadNameTakenMethodTest() throws IOException {
+        Mockito.when(dataBase.findByFileNameAndUsername(FILE_NAME, "testUser"))
+                .thenReturn(Optional.of(FileEntity.builder().fileName(FILE_NAME).username("testUser").build()));
+        Assertions.assertThrows(
+                FileAlreadyExistsException.class,
+                () -> repository.openUpload(new OpenUploadParams(FILE_NAME, 10))
+        );
+        Mockito.verify(storage, Mockito.times(0)).createUploadFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyLong());
+        Assertions.assertTrue(sessionRows.isEmpty());
+    }
+
+    @Test
+    public void commitNameCollisionMethodTest() throws IOException {
+//        имя заняли после открытия загрузки: коммит падает, но файл загрузки остается и завершение можно повторить
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 8));
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 0, new ByteArrayInputStream(new byte[4])));
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 1, new ByteArrayInputStream(new byte[4])));
+        final var storedFile = new StoredFile(Path.of("temp"), 8, "testHash");
+        Mockito.when(storage.hashUploadFile(PATH, "testUser", session.uploadId())).thenReturn(storedFile);
+        Mockito.when(blobs.acquire("testHash", 8, 2, "NONE", 8)).thenReturn(blobLocation(2, FileCodec.NONE, 8));
+        Mockito.when(dataBase.save(Mockito.any(FileEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("uq_username_file_name"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        final var savedSessionRows = Map.copyOf(sessionRows);
+        final var savedChunkRows = Map.copyOf(chunkRows);
+        Assertions.assertThrows(
+                DataIntegrityViolationException.class,
+                () -> commitInTransaction(session.uploadId())
+        );
+        Mockito.verify(storage, Mockito.times(0)).discardFile(Mockito.any());
+        Mockito.verify(storage, Mockito.times(0)).commitBlob(Mockito.any(), Mockito.any(), Mockito.anyInt());
+//        откат транзакции возвращает строки сессии
+        sessionRows.putAll(savedSessionRows);
+        chunkRows.putAll(savedChunkRows);
+        commitInTransaction(session.uploadId());
+        Mockito.verify(storage, Mockito.times(1)).commitBlob(PATH, storedFile, 2);
+        Mockito.verify(storage, Mockito.times(0)).discardFile(Mockito.any());
+        Assertions.assertTrue(sessionRows.isEmpty());
+    }
+
+    @Test
+    public void uploadChunkWrongSizeMethodTest() throws IOException {
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 10));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> repository.uploadChunk(new UploadChunkParams(session.uploadId(), 0, new ByteArrayInputStream(new byte[3])))
+        );
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> repository.uploadChunk(new UploadChunkParams(session.uploadId(), 3, new ByteArrayInputStream(new byte[4])))
+        );
+    }
+
+    @Test
+    public void commitIncompleteUploadMethodTest() throws IOException {
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 10));
+        repository.uploadChunk(new UploadChunkParams(session.uploadId(), 0, new ByteArrayInputStream(new byte[4])));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> repository.commitUpload(new CommitUploadParams(session.uploadId()))
+        );
+        Mockito.verify(dataBase, Mockito.times(0)).save(Mockito.any(FileEntity.class));
+    }
+
+    @Test
+    public void foreignSessionMethodTest() throws IOException {
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 10));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("otherUser", ""));
+        Assertions.assertThrows(
+                NoSuchElementException.class,
+                () -> repository.commitUpload(new CommitUploadParams(session.uploadId()))
+        );
+        Assertions.assertThrows(
+                NoSuchElementException.class,
+                () -> repository.commitUpload(new CommitUploadParams("unknown"))
+        );
+    }
+
+    @Test
+    public void removeExpiredSessionsMethodTest() throws IOException {
+        repository.setExpiration(Duration.ofMillis(-1));
+        final var session = repository.openUpload(new OpenUploadParams(FILE_NAME, 10));
+        repository.removeExpiredSessions();
+        Mockito.verify(storage, Mockito.times(1)).deleteUploadFile(PATH, "testUser", session.uploadId());
+        Assertions.assertTrue(sessionRows.isEmpty());
+    }
+
+    @Test
+    public void removeStaleFilesMethodTest() throws IOException {
+        final var before = Instant.now().minus(Duration.ofHours(1));
+        repository.removeStaleFiles();
+        final var captor = ArgumentCaptor.forClass(Instant.class);
+        Mockito.verify(storage, Mockito.times(1)).deleteStaleFiles(Mockito.eq(PATH), captor.capture());
+        Assertions.assertFalse(captor.getValue().isBefore(before));
+        Assertions.assertTrue(captor.getValue().isBefore(Instant.now()));
+    }
+
+//    синхронизации транзакции вызываются только при успешном завершении, как после коммита
+    private void commitInTransaction(String uploadId) throws IOException {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            repository.commitUpload(new CommitUploadParams(uploadId));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private UploadRepositoryImpl repository() {
+        final var repository = new UploadRepositoryImpl(dataBase, blobs, storage, cache, sessions);
+        repository.setPath(PATH);
+        repository.setShardDepth(2);
+        repository.setChunkSize(DataSize.ofBytes(CHUNK_SIZE));
+        repository.setExpiration(Duration.ofHours(1));
+        repository.setCleanupBatch(10);
+        return repository;
+    }
+
+//    таблицы upload_sessions и upload_chunks в памяти
+    private UploadSessionJpaRepository sessions() {
+        sessionRows = new ConcurrentHashMap<>();
+        chunkRows = new ConcurrentHashMap<>();
+        final var sessions = Mockito.mock(UploadSessionJpaRepository.class);
+        Mockito.when(sessions.save(Mockito.any())).thenAnswer(invocation -> {
+            final var session = invocation.getArgument(0, UploadSessionEntity.class);
+            sessionRows.put(session.getId(), session);
+            return session;
+        });
+        Mockito.when(sessions.findById(Mockito.any()))
+                .thenAnswer(invocation -> Optional.ofNullable(sessionRows.get(invocation.getArgument(0, String.class))));
+        Mockito.doAnswer(invocation -> chunkRows
+                        .computeIfAbsent(invocation.getArgument(0), id -> ConcurrentHashMap.newKeySet())
+                        .add(invocation.getArgument(1)))
+                .when(sessions).addChunk(Mockito.any(), Mockito.anyInt());
+        Mockito.when(sessions.countChunks(Mockito.any()))
+                .thenAnswer(invocation -> chunkRows.getOrDefault(invocation.getArgument(0, String.class), Set.of()).size());
+        Mockito.when(sessions.remove(Mockito.any())).thenAnswer(invocation -> {
+            chunkRows.remove(invocation.getArgument(0, String.class));
+            return sessionRows.remove(invocation.getArgument(0, String.class)) == null ? 0 : 1;
+        });
+        Mockito.when(sessions.findExpired(Mockito.anyLong(), Mockito.anyInt())).thenAnswer(invocation -> sessionRows
+                .values()
+                .stream()
+                .filter(session -> session.getExpiration() < invocation.getArgument(0, Long.class))
+                .limit(invocation.getArgument(1, Integer.class))
+                .toList());
+        return sessions;
+    }
+
+    private static BlobLocation blobLocation(int shardDepth, FileCodec codec, long storedSize) {
+        final var blob = Mockito.mock(BlobLocation.class);
+        Mockito.when(blob.getShardDepth()).thenReturn(shardDepth);
+        Mockito.when(blob.getCodec()).thenReturn(codec);
+        Mockito.when(blob.getStoredSize()).thenReturn(storedSize);
+        return blob;
+    }
+}
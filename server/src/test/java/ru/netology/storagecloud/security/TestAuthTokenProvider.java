@@ -11,12 +11,15 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import ru.netology.storagecloud.exceptions.UnauthorizedException;
 import ru.netology.storagecloud.models.errors.ErrorMessage;
+import ru.netology.storagecloud.repositories.tokens.cache.TokenCache;
 import ru.netology.storagecloud.repositories.tokens.entities.models.AuthTokenGenerated;
 import ru.netology.storagecloud.repositories.tokens.entities.dao.TokenEntity;
 import ru.netology.storagecloud.repositories.tokens.util.TokenGenerator;
 import ru.netology.storagecloud.repositories.tokens.jpa.TokenJpaRepository;
 import ru.netology.storagecloud.services.tokens.util.AuthTokenDecoder;
+import ru.netology.storagecloud.repositories.invalidation.InvalidationPublisher;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -71,13 +74,40 @@ public class TestAuthTokenProvider {
 
         final var repository = Mockito.mock(TokenJpaRepository.class);
         Mockito.when(repository.findById(token.getUsername())).thenReturn(Optional.of(tokenEntity));
-        final var provider = new AuthTokenProvider(repository, tokenGenerator);
+        final var provider = new AuthTokenProvider(tokenCache(repository), tokenGenerator);
         provider.tokenDecoder = Mockito.mock(AuthTokenDecoder.class);
         Mockito.when(provider.tokenDecoder.readAuthToken(Mockito.anyString())).thenReturn(token);
         final var result = provider.authenticate(authentication);
         Assertions.assertEquals(expected, result);
     }
 
+    @Test
+    public void authenticateMethodWithDecodedTokenTest() throws KeyLengthException {
+        final var tokenGenerator = new TokenGenerator();
+        tokenGenerator.setDaysToExpiration(1);
+        final var user = "testUser";
+        final var token = tokenGenerator.generateToken(user);
+        final var authentication = new UsernamePasswordAuthenticationToken(user, token.getToken());
+        authentication.setDetails(token);
+        final var expected = new UsernamePasswordAuthenticationToken(user, token.getToken(), new ArrayList<>());
+
+        final var tokenEntity = TokenEntity.builder()
+                .username(token.getUsername())
+                .token(token.getToken())
+                .isActive(true)
+                .start(token.getStart())
+                .expiration(token.getExpiration())
+                .build();
+
+        final var repository = Mockito.mock(TokenJpaRepository.class);
+        Mockito.when(repository.findById(token.getUsername())).thenReturn(Optional.of(tokenEntity));
+        final var provider = new AuthTokenProvider(tokenCache(repository), tokenGenerator);
+        provider.tokenDecoder = Mockito.mock(AuthTokenDecoder.class);
+        final var result = provider.authenticate(authentication);
+        Assertions.assertEquals(expected, result);
+        Mockito.verify(provider.tokenDecoder, Mockito.never()).readAuthToken(Mockito.anyString());
+    }
+
     @ParameterizedTest
     @MethodSource("parametersForAuthenticateMethodWithThrowExceptionTest")
     public void authenticateMethodWithThrowExceptionTest(
@@ -89,7 +119,7 @@ public class TestAuthTokenProvider {
         final Optional<TokenEntity> optionalTokenEntity = tokenEntity == null ? Optional.empty() : Optional.of(tokenEntity);
         final var repository = Mockito.mock(TokenJpaRepository.class);
         Mockito.when(repository.findById(token.username())).thenReturn(optionalTokenEntity);
-        final var provider = new AuthTokenProvider(repository, tokenGenerator);
+        final var provider = new AuthTokenProvider(tokenCache(repository), tokenGenerator);
         provider.tokenDecoder = Mockito.mock(AuthTokenDecoder.class);
         Mockito.when(provider.tokenDecoder.readAuthToken(Mockito.anyString())).thenReturn(token);
         Assertions.assertThrows(
@@ -182,4 +212,11 @@ public class TestAuthTokenProvider {
                                 .build())
         );
     }
+
+    private static TokenCache tokenCache(TokenJpaRepository repository) {
+        final var tokenCache = new TokenCache(repository, Mockito.mock(InvalidationPublisher.class));
+        tokenCache.setMaxSize(10);
+        tokenCache.setTtl(Duration.ofMinutes(1));
+        return tokenCache;
+    }
 }
@@ -10,18 +10,27 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import ru.netology.storagecloud.exceptions.UnauthorizedException;
 import ru.netology.storagecloud.models.errors.ErrorMessage;
 import ru.netology.storagecloud.repositories.tokens.entities.models.AuthTokenGenerated;
 import ru.netology.storagecloud.repositories.tokens.util.TokenGenerator;
 import ru.netology.storagecloud.security.models.SecurityToken;
 import ru.netology.storagecloud.security.util.SecurityTokenDecoder;
+import ru.netology.storagecloud.services.tokens.models.AuthToken;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 public class TestUsernameLoginFilter {
@@ -66,6 +75,58 @@ public class TestUsernameLoginFilter {
         Mockito.verify(filterChain, Mockito.atLeastOnce()).doFilter(request, response);
     }
 
+    @Test
+    public void doFilterMethodWithPublicRequestTest() throws ServletException, IOException {
+        final var request = new MockHttpServletRequest("POST", "/login");
+        request.addHeader("auth-token", "Bearer testToken");
+        final var response = new MockHttpServletResponse();
+        final var filterChain = Mockito.mock(FilterChain.class);
+        final var decoder = Mockito.mock(SecurityTokenDecoder.class);
+
+        final var authFilter = new UsernameLoginFilter(decoder);
+        authFilter.setPublicRequests(new AntPathRequestMatcher("/login", "POST"));
+
+        authFilter.doFilter(request, response, filterChain);
+        Mockito.verify(filterChain, Mockito.times(1)).doFilter(request, response);
+        Mockito.verifyNoInteractions(decoder);
+    }
+
+    @Test
+    public void attemptAuthenticationMethodConcurrentTest() throws Exception {
+        final var requestsCount = 1000;
+        final var tokenGenerator = new TokenGenerator();
+        tokenGenerator.setDaysToExpiration(1);
+        final var tokens = new ArrayList<AuthToken>(requestsCount);
+        for (var i = 0; i < requestsCount; i++) tokens.add(tokenGenerator.generateToken("testUser" + i));
+
+        final var authFilter = new UsernameLoginFilter(tokenGenerator);
+        authFilter.setPostOnly(false);
+        authFilter.setAuthenticationManager(authentication -> authentication);
+
+        final var executor = Executors.newFixedThreadPool(requestsCount);
+        try {
+            final var start = new CountDownLatch(1);
+            final var results = new ArrayList<Future<Authentication>>(requestsCount);
+            for (var token : tokens) {
+                results.add(executor.submit(() -> {
+                    final var request = new MockHttpServletRequest("GET", "/list");
+                    request.addHeader("auth-token", "Bearer " + token.getToken());
+                    start.await();
+                    return authFilter.attemptAuthentication(request, new MockHttpServletResponse());
+                }));
+            }
+            start.countDown();
+            for (var i = 0; i < requestsCount; i++) {
+                final var result = results.get(i).get(1, TimeUnit.MINUTES);
+                Assertions.assertEquals(tokens.get(i).getUsername(), result.getPrincipal());
+                Assertions.assertEquals(tokens.get(i).getToken(), result.getCredentials());
+                Assertions.assertEquals(tokens.get(i), result.getDetails());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("parametersForAttemptAuthenticationMethodTest")
     public void attemptAuthenticationMethodTest(
@@ -114,9 +175,8 @@ public class TestUsernameLoginFilter {
 
         final var username = "testUsername";
         final var token = "testToken";
-        final var validRequest = Mockito.mock(HttpServletRequest.class);
-        Mockito.when(validRequest.getMethod()).thenReturn("POST");
-        Mockito.when(validRequest.getHeader("auth-token")).thenReturn("Bearer " + token);
+        final var validRequest = new MockHttpServletRequest("POST", "/list");
+        validRequest.addHeader("auth-token", "Bearer " + token);
 
         final var expected = new UsernamePasswordAuthenticationToken(username, token);
         final var manager = Mockito.mock(AuthenticationManager.class);
@@ -132,8 +192,8 @@ public class TestUsernameLoginFilter {
     @ParameterizedTest
     @MethodSource("parametersForObtainUsernameAndPasswordMethodsTest")
     public void obtainUsernameAndPasswordMethodsTest(SecurityToken token, String expectedUsername, String expectedPassword) {
-        final var request = Mockito.mock(HttpServletRequest.class);
-        Mockito.when(request.getHeader("auth-token")).thenReturn("Bearer testToken");
+        final var request = new MockHttpServletRequest();
+        request.addHeader("auth-token", "Bearer testToken");
         final var decoder = Mockito.mock(SecurityTokenDecoder.class);
         Mockito.when(decoder.readSecurityToken(Mockito.anyString())).thenReturn(token);
         final var authFilter = new UsernameLoginFilter(decoder);
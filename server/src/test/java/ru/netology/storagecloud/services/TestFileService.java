@@ -7,6 +7,8 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.multipart.MultipartFile;
 import ru.netology.storagecloud.exceptions.InputDataException;
 import ru.netology.storagecloud.exceptions.InternalServerException;
@@ -55,7 +57,7 @@ public class TestFileService {
     @ParameterizedTest
     @MethodSource("parametersForGetFileListMethodTest")
     public void getFileListMethodTest(UserFilesListResponse response) throws InternalServerException, InputDataException {
-        final var params = new FilesListParams(1);
+        final var params = new FilesListParams(1, "id", null);
         final var repository = Mockito.mock(FileRepository.class);
         Mockito.when(repository.getFileList(params)).thenReturn(response);
         final var service = new FileService(repository);
@@ -66,15 +68,15 @@ public class TestFileService {
     private static Stream<Arguments> parametersForGetFileListMethodTest() {
 
         return Stream.of(
-                Arguments.of(new UserFilesListResponse(new ArrayList<>())),
-                Arguments.of(new UserFilesListResponse(null)),
+                Arguments.of(new UserFilesListResponse(new ArrayList<>(), null)),
+                Arguments.of(new UserFilesListResponse(null, null)),
                 Arguments.of(new UserFilesListResponse(List.of(
                         new FileDescription("file1", 0),
                         new FileDescription("file2", 100),
                         new FileDescription("file3", 999),
                         new FileDescription("file4", 2),
                         new FileDescription("file5", 999999)
-                )))
+                ), "cursor"))
         );
     }
 
@@ -89,15 +91,25 @@ public class TestFileService {
     private static Stream<Arguments> parametersForGetFileListInputDataExceptionMethodTest() {
 
         return Stream.of(
-                Arguments.of(new FilesListParams(0)),
-                Arguments.of(new FilesListParams(-1)),
-                Arguments.of(new FilesListParams(-999999))
+                Arguments.of(new FilesListParams(0, "id", null)),
+                Arguments.of(new FilesListParams(-1, "id", null)),
+                Arguments.of(new FilesListParams(-999999, "id", null)),
+                Arguments.of(new FilesListParams(1, null, null))
         );
     }
 
+    @Test
+    public void getFileListInvalidCursorMethodTest() {
+        final var params = new FilesListParams(1, "id", "invalid");
+        final var repository = Mockito.mock(FileRepository.class);
+        Mockito.doThrow(new IllegalArgumentException()).when(repository).getFileList(params);
+        final var service = new FileService(repository);
+        Assertions.assertThrows(InputDataException.class, () -> service.getFileList(params), ErrorMessage.ERROR_INPUT_DATA);
+    }
+
     @Test
     public void getFileListInternalServerExceptionMethodTest() {
-        final var params = new FilesListParams(1);
+        final var params = new FilesListParams(1, "id", null);
         final var repository = Mockito.mock(FileRepository.class);
         Mockito.doThrow(new RuntimeException()).when(repository).getFileList(params);
         final var service = new FileService(repository);
@@ -123,10 +135,10 @@ public class TestFileService {
     private static Stream<Arguments> parametersForGetFileMethodTest() {
 
         return Stream.of(
-                Arguments.of(new UserFileResponse("hash1", new byte[0])),
-                Arguments.of(new UserFileResponse("hash2", new byte[1])),
+                Arguments.of(new UserFileResponse("hash1", new ByteArrayResource(new byte[0]))),
+                Arguments.of(new UserFileResponse("hash2", new ByteArrayResource(new byte[1]))),
                 Arguments.of((UserFileResponse) null),
-                Arguments.of(new UserFileResponse("hash3", new byte[999999]))
+                Arguments.of(new UserFileResponse("hash3", new ByteArrayResource(new byte[999999])))
         );
     }
 
@@ -262,6 +274,16 @@ public class TestFileService {
                 );
     }
 
+    @Test
+    public void updateFileNameTakenMethodTest() throws IOException {
+        final var params = new UpdateFileNameParams("file1.test", "{\"filename\":\"new1.test\"}");
+        final var repository = Mockito.mock(FileRepository.class);
+        Mockito.doThrow(new DataIntegrityViolationException("uq_username_file_name"))
+                .when(repository).updateFileName(Mockito.any(UpdateFileNameParams.class));
+        final var service = new FileService(repository);
+        Assertions.assertThrows(InputDataException.class, () -> service.updateFile(params), ErrorMessage.ERROR_INPUT_DATA);
+    }
+
     @Test
     public void addFileMethodTest() throws IOException, InputDataException {
         final var params = new AddFileParams("file1.test", Mockito.mock(MultipartFile.class));
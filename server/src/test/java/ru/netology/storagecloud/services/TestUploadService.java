@@ -0,0 +1,162 @@
+package ru.netology.storagecloud.services;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mockito;
+import org.springframework.util.unit.DataSize;
+import ru.netology.storagecloud.exceptions.InputDataException;
+import ru.netology.storagecloud.exceptions.InternalServerException;
+import ru.netology.storagecloud.models.errors.ErrorMessage;
+import ru.netology.storagecloud.models.files.params.CommitUploadParams;
+import ru.netology.storagecloud.models.files.params.OpenUploadParams;
+import ru.netology.storagecloud.models.files.params.UploadChunkParams;
+import ru.netology.storagecloud.models.files.responses.UploadSessionResponse;
+import ru.netology.storagecloud.services.files.UploadRepository;
+import ru.netology.storagecloud.services.files.UploadService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+public class TestUploadService {
+
+    private static final long LARGE_FILE_SIZE = 5L * 1024 * 1024 * 1024;
+
+    private static long suiteStartTime;
+    private long testStartTime;
+
+    @BeforeAll
+    public static void initSuite() {
+        System.out.println("Running UploadServiceClassTest");
+        suiteStartTime = System.nanoTime();
+    }
+
+    @AfterAll
+    public static void completeSuite() {
+        System.out.println("UploadServiceClassTest complete: " + (System.nanoTime() - suiteStartTime));
+    }
+
+    @BeforeEach
+    public void initTest() {
+        System.out.println("Starting new test");
+        testStartTime = System.nanoTime();
+    }
+
+    @AfterEach
+    public void finalizeTest() {
+        System.out.println("Test complete: " + (System.nanoTime() - testStartTime));
+    }
+
+    @Test
+    public void openUploadMethodTest() throws IOException, InputDataException, InternalServerException {
+        final var params = new OpenUploadParams("file1.test", 100);
+        final var response = new UploadSessionResponse("id", 10, 10);
+        final var repository = Mockito.mock(UploadRepository.class);
+        Mockito.when(repository.openUpload(params)).thenReturn(response);
+        final var service = new UploadService(repository);
+        Assertions.assertEquals(response, service.openUpload(params));
+    }
+
+    @Test
+    public void openLargeUploadMethodTest() throws IOException, InputDataException, InternalServerException {
+        final var params = new OpenUploadParams("file1.test", LARGE_FILE_SIZE);
+        final var response = new UploadSessionResponse("id", 8 * 1024 * 1024, 640);
+        final var repository = Mockito.mock(UploadRepository.class);
+        Mockito.when(repository.openUpload(params)).thenReturn(response);
+        final var service = new UploadService(repository);
+        Assertions.assertEquals(response, service.openUpload(params));
+    }
+
+    @ParameterizedTest
+    @MethodSource("parametersForOpenUploadInputDataExceptionMethodTest")
+    public void openUploadInputDataExceptionMethodTest(OpenUploadParams params) {
+        final var service = new UploadService(Mockito.mock(UploadRepository.class));
+        Assertions.assertThrows(InputDataException.class, () -> service.openUpload(params), ErrorMessage.ERROR_INPUT_DATA);
+    }
+
+    private static Stream<Arguments> parametersForOpenUploadInputDataExceptionMethodTest() {
+
+        return Stream.of(
+                Arguments.of(new OpenUploadParams(null, 1)),
+                Arguments.of(new OpenUploadParams(" ", 1)),
+                Arguments.of(new OpenUploadParams("invalidFileNameWithoutFileType", 1)),
+                Arguments.of(new OpenUploadParams("file1.test", -1)),
+                Arguments.of(new OpenUploadParams("file1.test", DataSize.ofTerabytes(1).toBytes() + 1))
+        );
+    }
+
+    @Test
+    public void openUploadInternalServerExceptionMethodTest() throws IOException {
+        final var params = new OpenUploadParams("file1.test", 100);
+        final var repository = Mockito.mock(UploadRepository.class);
+        Mockito.doThrow(new IOException()).when(repository).openUpload(params);
+        final var service = new UploadService(repository);
+        Assertions.assertThrows(InternalServerException.class, () -> service.openUpload(params), ErrorMessage.ERROR_UPLOAD_FILE);
+    }
+
+    @Test
+    public void openUploadNameTakenMethodTest() throws IOException {
+        final var params = new OpenUploadParams("file1.test", 100);
+        final var repository = Mockito.mock(UploadRepository.class);
+        Mockito.doThrow(new FileAlreadyExistsException("file1.test")).when(repository).openUpload(params);
+        final var service = new UploadService(repository);
+        Assertions.assertThrows(InputDataException.class, () -> service.openUpload(params), ErrorMessage.ERROR_INPUT_DATA);
+    }
+
+    @Test
+    public void uploadChunkMethodTest() throws IOException, InputDataException, InternalServerException {
+        final var params = new UploadChunkParams("id", 0, new ByteArrayInputStream(new byte[1]));
+        final var repository = Mockito.mock(UploadRepository.class);
+        final var service = new UploadService(repository);
+        service.uploadChunk(params);
+        Mockito.verify(repository, Mockito.times(1)).uploadChunk(params);
+    }
+
+    @ParameterizedTest
+    @MethodSource("parametersForUploadChunkExceptionMethodTest")
+    public void uploadChunkExceptionMethodTest(Exception repositoryException, Class<? extends Exception> expected)
+            throws IOException {
+        final var params = new UploadChunkParams("id", 0, new ByteArrayInputStream(new byte[1]));
+        final var repository = Mockito.mock(UploadRepository.class);
+        Mockito.doThrow(repositoryException).when(repository).uploadChunk(params);
+        final var service = new UploadService(repository);
+        Assertions.assertThrows(expected, () -> service.uploadChunk(params));
+    }
+
+    private static Stream<Arguments> parametersForUploadChunkExceptionMethodTest() {
+
+        return Stream.of(
+                Arguments.of(new NoSuchElementException(), InputDataException.class),
+                Arguments.of(new IllegalArgumentException(), InputDataException.class),
+                Arguments.of(new IOException(), InternalServerException.class)
+        );
+    }
+
+    @Test
+    public void uploadChunkInputDataExceptionMethodTest() {
+        final var service = new UploadService(Mockito.mock(UploadRepository.class));
+        Assertions.assertThrows(
+                InputDataException.class,
+                () -> service.uploadChunk(new UploadChunkParams("id", -1, new ByteArrayInputStream(new byte[1])))
+        );
+        Assertions.assertThrows(
+                InputDataException.class,
+                () -> service.uploadChunk(new UploadChunkParams(null, 0, new ByteArrayInputStream(new byte[1])))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("parametersForUploadChunkExceptionMethodTest")
+    public void commitUploadExceptionMethodTest(Exception repositoryException, Class<? extends Exception> expected)
+            throws IOException {
+        final var params = new CommitUploadParams("id");
+        final var repository = Mockito.mock(UploadRepository.class);
+        Mockito.doThrow(repositoryException).when(repository).commitUpload(params);
+        final var service = new UploadService(repository);
+        Assertions.assertThrows(expected, () -> service.commitUpload(params));
+    }
+}